@@ -0,0 +1,21 @@
+package com.lzy.benchmark;
+
+import com.lzy.common.CalculatorService;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基准测试在进程内注册的服务实现
+ */
+public class BenchmarkCalculatorService implements CalculatorService {
+
+    @Override
+    public Integer add(Integer a, Integer b) {
+        return a + b;
+    }
+
+    @Override
+    public CompletableFuture<Integer> addAsync(Integer a, Integer b) {
+        return CompletableFuture.completedFuture(a + b);
+    }
+}
@@ -0,0 +1,101 @@
+package com.lzy.benchmark;
+
+import com.lzy.common.CalculatorService;
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.config.ServerConfig;
+import com.lzy.rpc.protocol.MessageType;
+import com.lzy.rpc.protocol.ProtocolMessage;
+import com.lzy.rpc.provider.invoker.ServiceInvoker;
+import com.lzy.rpc.provider.registry.LocalRegistry;
+import com.lzy.rpc.provider.server.ConcurrencyLimiter;
+import com.lzy.rpc.provider.server.NettyServerHandler;
+import com.lzy.rpc.provider.server.dispatcher.DirectDispatcher;
+import com.lzy.rpc.provider.server.dispatcher.Dispatcher;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端方法分发的开销
+ * reflect：优化前的分发方式，每次调用按方法名和参数类型查找Method再反射调用，作为对照
+ * invoker：按服务名和方法签名查找启动时生成的调用表并调用
+ * handler：服务端处理器处理一条已解码的请求消息，包括截止时间检查、并发限制、统计和构造响应，不包括编解码，
+ * EmbeddedChannel本身传递消息的开销也计入其中
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private static final String SERVICE_NAME = "CalculatorService";
+
+    private final Object[] args = {1, 2};
+
+    private final Class<?>[] parameterTypes = {Integer.class, Integer.class};
+
+    private RpcRequest rpcRequest;
+
+    private EmbeddedChannel channel;
+
+    private Dispatcher dispatcher;
+
+    private long requestId;
+
+    @Setup
+    public void setup() throws Exception {
+        RpcApplication.init();
+        /* 在调用线程上直接执行，避免响应从其他线程写入EmbeddedChannel */
+        this.dispatcher = RpcApplication.dispatcher;
+        RpcApplication.dispatcher = new DirectDispatcher();
+        LocalRegistry.register(SERVICE_NAME, CalculatorService.class, new BenchmarkCalculatorService());
+        this.rpcRequest = Payloads.request(Payloads.SMALL);
+        this.channel = new EmbeddedChannel(new NettyServerHandler(new ConcurrencyLimiter(new ServerConfig()), 0));
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.channel.finishAndReleaseAll();
+        LocalRegistry.remove(SERVICE_NAME);
+        RpcApplication.dispatcher = this.dispatcher;
+    }
+
+    @Benchmark
+    public Object reflect() throws Exception {
+        Object service = LocalRegistry.get(SERVICE_NAME);
+        Method method = service.getClass().getMethod("add", this.parameterTypes);
+        return method.invoke(service, this.args);
+    }
+
+    @Benchmark
+    public Object invoker() throws Throwable {
+        ServiceInvoker serviceInvoker = LocalRegistry.getInvoker(SERVICE_NAME);
+        return serviceInvoker.getInvoker("add", this.parameterTypes).invoke(this.args);
+    }
+
+    @Benchmark
+    public Object handler() {
+        /* 响应沿用请求的消息头，每次使用新的消息头 */
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setSerializer(RpcApplication.serializer.getId());
+        header.setType(MessageType.REQUEST);
+        header.setRequestId(++this.requestId);
+        this.channel.writeInbound(new ProtocolMessage<>(header, this.rpcRequest));
+        return this.channel.readOutbound();
+    }
+}
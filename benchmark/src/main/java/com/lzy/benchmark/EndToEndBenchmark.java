@@ -0,0 +1,94 @@
+package com.lzy.benchmark;
+
+import com.lzy.common.CalculatorService;
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.consumer.proxy.ServiceProxyFactory;
+import com.lzy.rpc.provider.registry.LocalRegistry;
+import com.lzy.rpc.provider.server.NettyRpcServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过本机回环地址调用进程内启动的服务端，覆盖代理、编解码、网络传输、分发和执行的完整路径
+ * 配置见application.properties，线程数可通过-t参数调整以观察并发下的吞吐量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    /**
+     * 流水线调用时每次操作同时发出的请求数
+     */
+    private static final int PIPELINE = 16;
+
+    private NettyRpcServer server;
+
+    private Thread serverThread;
+
+    private CalculatorService proxy;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        RpcApplication.init();
+        LocalRegistry.register("CalculatorService", CalculatorService.class, new BenchmarkCalculatorService());
+        this.server = new NettyRpcServer();
+        CountDownLatch started = new CountDownLatch(1);
+        this.serverThread = new Thread(() -> this.server.start(RpcApplication.rpcConfig.getServer().getPort(), started::countDown),
+                "benchmark-server");
+        this.serverThread.setDaemon(true);
+        this.serverThread.start();
+        if (!started.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("server failed to start on port " + RpcApplication.rpcConfig.getServer().getPort());
+        }
+        this.proxy = ServiceProxyFactory.getProxy(CalculatorService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        this.server.stop();
+        this.serverThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Benchmark
+    public Integer sync() {
+        return this.proxy.add(1, 2);
+    }
+
+    @Benchmark
+    public Integer async() {
+        return this.proxy.addAsync(1, 2).join();
+    }
+
+    /**
+     * 同一线程同时发出多个异步请求后等待全部完成，衡量连接复用下的流水线吞吐量
+     */
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE)
+    public int pipelined() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[PIPELINE];
+        for (int i = 0; i < PIPELINE; i++) {
+            futures[i] = this.proxy.addAsync(i, 1);
+        }
+        CompletableFuture.allOf(futures).join();
+        return futures.length;
+    }
+}
@@ -0,0 +1,109 @@
+package com.lzy.benchmark;
+
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.ServiceInfo;
+import com.lzy.rpc.loadbalancer.LoadBalancer;
+import com.lzy.rpc.loadbalancer.LoadBalancerPolicy;
+import com.lzy.rpc.loadbalancer.NodeStats;
+import com.lzy.rpc.util.SpiLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各负载均衡策略在多线程并发选择时的耗时，所有线程共享同一个负载均衡器和节点列表
+ * selectAndRecord同时记录节点的活跃请求数和响应时间，与客户端代理的实际调用方式一致，
+ * leastActive、peakEwma等依赖节点统计的策略需要用它衡量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LoadBalancerBenchmark {
+
+    @Param({LoadBalancerPolicy.RANDOM, LoadBalancerPolicy.WEIGHTED_RANDOM, LoadBalancerPolicy.ROUND_ROBIN,
+            LoadBalancerPolicy.SMOOTH_WEIGHTED_ROUND_ROBIN, LoadBalancerPolicy.CONSISTENT_HASH,
+            LoadBalancerPolicy.LEAST_ACTIVE, LoadBalancerPolicy.PEAK_EWMA})
+    private String policy;
+
+    @Param({"10"})
+    private int nodes;
+
+    private LoadBalancer loadBalancer;
+
+    private List<ServiceInfo> services;
+
+    @Setup
+    public void setup() throws Exception {
+        SpiLoader.init();
+        this.loadBalancer = (LoadBalancer) SpiLoader.getClazz(LoadBalancer.class.getName(), this.policy).newInstance();
+        List<ServiceInfo> services = new ArrayList<>();
+        for (int i = 0; i < this.nodes; i++) {
+            ServiceInfo serviceInfo = new ServiceInfo();
+            serviceInfo.setServiceName("service");
+            serviceInfo.setServiceHost("10.0.0." + (i + 1));
+            serviceInfo.setServicePort(8080);
+            serviceInfo.setWeight(i % 3 + 1);
+            /* 预热已结束 */
+            serviceInfo.setRegisterTime(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+            serviceInfo.setWarmup(0);
+            services.add(serviceInfo);
+        }
+        /* 与服务发现一样返回同一个不可变列表，负载均衡器按列表缓存选择结构 */
+        this.services = Collections.unmodifiableList(services);
+    }
+
+    @Benchmark
+    public ServiceInfo select(Requests requests) {
+        return this.loadBalancer.select(requests.next(), this.services);
+    }
+
+    @Benchmark
+    public ServiceInfo selectAndRecord(Requests requests) {
+        ServiceInfo serviceInfo = this.loadBalancer.select(requests.next(), this.services);
+        NodeStats stats = NodeStats.get(serviceInfo.getAddress());
+        stats.end(stats.begin());
+        return serviceInfo;
+    }
+
+    /**
+     * 每个线程预先生成的请求，参数各不相同，使一致性哈希分散到不同节点
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+
+        private final RpcRequest[] rpcRequests = new RpcRequest[1024];
+
+        private int index;
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < this.rpcRequests.length; i++) {
+                RpcRequest rpcRequest = Payloads.request(Payloads.SMALL);
+                rpcRequest.setArgs(new Object[]{i * 31 + Thread.currentThread().hashCode(), 2});
+                this.rpcRequests[i] = rpcRequest;
+            }
+        }
+
+        RpcRequest next() {
+            return this.rpcRequests[this.index++ & (this.rpcRequests.length - 1)];
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.lzy.benchmark;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 模拟业务中常见的订单对象，作为较大的请求参数和响应数据
+ */
+@Data
+public class Order implements Serializable {
+
+    private Long id;
+
+    private String customer;
+
+    private String address;
+
+    private List<String> items;
+
+    private Map<String, String> attributes;
+
+    private Double amount;
+
+    private Long createTime;
+}
@@ -0,0 +1,74 @@
+package com.lzy.benchmark;
+
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.context.RpcContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基准测试使用的请求、响应样本
+ * small：CalculatorService.add(1, 2)，带截止时间元数据，代表最常见的小请求
+ * order：以订单对象为参数和返回值，代表带有集合和字符串的业务请求（约1KB）
+ */
+public class Payloads {
+
+    public static final String SMALL = "small";
+
+    public static final String ORDER = "order";
+
+    public static RpcRequest request(String shape) {
+        RpcRequest rpcRequest = new RpcRequest();
+        if (ORDER.equals(shape)) {
+            rpcRequest.setServiceName("OrderService");
+            rpcRequest.setMethodName("place");
+            rpcRequest.setParameterTypes(new Class<?>[]{Long.class, Order.class});
+            rpcRequest.setArgs(new Object[]{10086L, Payloads.order()});
+        } else {
+            rpcRequest.setServiceName("CalculatorService");
+            rpcRequest.setMethodName("add");
+            rpcRequest.setParameterTypes(new Class<?>[]{Integer.class, Integer.class});
+            rpcRequest.setArgs(new Object[]{1, 2});
+        }
+        /* 截止时间取较远的时间，样本在整个基准测试期间都不会过期 */
+        RpcContext.setDeadline(rpcRequest, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        return rpcRequest;
+    }
+
+    public static RpcResponse response(String shape) {
+        RpcResponse rpcResponse = new RpcResponse();
+        if (ORDER.equals(shape)) {
+            rpcResponse.setData(Payloads.order());
+            rpcResponse.setDataType(Order.class);
+        } else {
+            rpcResponse.setData(3);
+            rpcResponse.setDataType(Integer.class);
+        }
+        rpcResponse.setMessage("ok");
+        return rpcResponse;
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId(20240101000001L);
+        order.setCustomer("customer-10086");
+        order.setAddress("No.1 Zhongguancun Street, Haidian District, Beijing");
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add("sku-" + (100000 + i) + ":" + (i % 3 + 1));
+        }
+        order.setItems(items);
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("channel", "app");
+        attributes.put("coupon", "NEWUSER-2024");
+        attributes.put("remark", "please deliver before 6 pm, call before arrival");
+        order.setAttributes(attributes);
+        order.setAmount(1299.5);
+        order.setCreateTime(1704067200000L);
+        return order;
+    }
+}
@@ -0,0 +1,68 @@
+package com.lzy.benchmark;
+
+import com.lzy.common.CalculatorService;
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.consumer.proxy.ServiceProxyFactory;
+import com.lzy.rpc.consumer.retry.Retry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端代理本身的开销：构造请求、设置截止时间、查找对冲和统计等，不包括网络传输
+ * 将重试策略替换为直接返回固定响应的实现，调用在进入传输层之前结束
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyBenchmark {
+
+    private CalculatorService direct;
+
+    private CalculatorService proxy;
+
+    private Retry retry;
+
+    @Setup
+    public void setup() {
+        RpcApplication.init();
+        this.retry = RpcApplication.retry;
+        RpcResponse rpcResponse = new RpcResponse();
+        rpcResponse.setData(3);
+        RpcApplication.retry = callable -> rpcResponse;
+        this.direct = new BenchmarkCalculatorService();
+        this.proxy = ServiceProxyFactory.getProxy(CalculatorService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RpcApplication.retry = this.retry;
+    }
+
+    /**
+     * 直接调用实现类，作为对照
+     */
+    @Benchmark
+    public Integer direct() {
+        return this.direct.add(1, 2);
+    }
+
+    @Benchmark
+    public Integer proxy() {
+        return this.proxy.add(1, 2);
+    }
+}
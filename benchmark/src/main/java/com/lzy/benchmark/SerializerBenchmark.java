@@ -0,0 +1,103 @@
+package com.lzy.benchmark;
+
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.util.Serializer;
+import com.lzy.rpc.util.SerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各序列化器序列化、反序列化请求和响应的耗时，与编解码器一样直接读写池化的直接内存缓冲区
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"jdk", "json", "kryo", "hessian"})
+    private String serializer;
+
+    @Param({Payloads.SMALL, Payloads.ORDER})
+    private String shape;
+
+    private Serializer instance;
+
+    private RpcRequest rpcRequest;
+
+    private RpcResponse rpcResponse;
+
+    /**
+     * 序列化的目标缓冲区，每次操作前清空
+     */
+    private ByteBuf out;
+
+    /**
+     * 序列化后的请求，每次操作前重置读位置
+     */
+    private ByteBuf requestBytes;
+
+    private ByteBuf responseBytes;
+
+    @Setup
+    public void setup() throws Exception {
+        this.instance = SerializerFactory.getSerializer(this.serializer);
+        this.rpcRequest = Payloads.request(this.shape);
+        this.rpcResponse = Payloads.response(this.shape);
+        this.out = PooledByteBufAllocator.DEFAULT.directBuffer(4096);
+        this.requestBytes = PooledByteBufAllocator.DEFAULT.directBuffer(4096);
+        this.instance.serialize(this.rpcRequest, this.requestBytes);
+        this.responseBytes = PooledByteBufAllocator.DEFAULT.directBuffer(4096);
+        this.instance.serialize(this.rpcResponse, this.responseBytes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.out.release();
+        this.requestBytes.release();
+        this.responseBytes.release();
+    }
+
+    @Benchmark
+    public int serializeRequest() throws Exception {
+        this.out.clear();
+        this.instance.serialize(this.rpcRequest, this.out);
+        return this.out.writerIndex();
+    }
+
+    @Benchmark
+    public RpcRequest deserializeRequest() throws Exception {
+        this.requestBytes.readerIndex(0);
+        return this.instance.deserialize(this.requestBytes, RpcRequest.class);
+    }
+
+    @Benchmark
+    public int serializeResponse() throws Exception {
+        this.out.clear();
+        this.instance.serialize(this.rpcResponse, this.out);
+        return this.out.writerIndex();
+    }
+
+    @Benchmark
+    public RpcResponse deserializeResponse() throws Exception {
+        this.responseBytes.readerIndex(0);
+        return this.instance.deserialize(this.responseBytes, RpcResponse.class);
+    }
+}
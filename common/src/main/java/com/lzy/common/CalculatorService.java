@@ -1,5 +1,7 @@
 package com.lzy.common;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 用户服务
  */
@@ -9,4 +11,9 @@ public interface CalculatorService {
      * 获取用户
      */
     public Integer add(Integer a,Integer b);
+
+    /**
+     * 异步加法，客户端调用时立即返回future
+     */
+    public CompletableFuture<Integer> addAsync(Integer a,Integer b);
 }
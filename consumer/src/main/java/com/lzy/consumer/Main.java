@@ -10,5 +10,7 @@ public class Main {
         ConsumerBootstrap.init();
         CalculatorService calculatorService = ServiceProxyFactory.getProxy(CalculatorService.class);
         System.out.println(calculatorService.add(1,2));
+        /* 异步调用，返回的future在收到响应时完成 */
+        System.out.println(calculatorService.addAsync(3,4).join());
     }
 }
@@ -0,0 +1,284 @@
+package com.lzy.consumer.load;
+
+import com.lzy.common.CalculatorService;
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bootstrap.ConsumerBootstrap;
+import com.lzy.rpc.consumer.proxy.ServiceProxyFactory;
+import com.lzy.rpc.consumer.tolerant.TolerantPolicy;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测工具，通过服务代理按配置的调用组合向服务端发出请求，输出吞吐量和响应时间分布
+ * 闭环模式下固定数量的线程循环调用，指定速率时每个线程按固定间隔发出请求；
+ * 开环模式下按目标速率发出请求，不等待之前的请求完成，更接近线上流量的到达方式
+ * 两种模式下的响应时间都从计划发出请求的时间算起，见{@link LoadRecorder}
+ *
+ * 默认的容错策略和failBack策略在失败时返回null，无法计为失败，因此只允许rpc.client.tolerant为failFast或failOver
+ *
+ * 用法：先启动服务端，再执行
+ * java com.lzy.consumer.load.LoadGenerator --mode=open --rate=5000 --concurrency=32 --duration=60 --mix=add=9,addAsync=1
+ */
+public class LoadGenerator {
+
+    /**
+     * 开环模式下尚未完成的请求数上限，超出时不再发出请求并计为失败，避免服务端停止响应时压测端内存耗尽
+     */
+    private static final int MAX_OUTSTANDING = 100000;
+
+    /**
+     * 可用的操作，结构为：操作名称:操作
+     */
+    private static final Map<String, Operation> operations = new LinkedHashMap<>();
+
+    static {
+        operations.put("add", new Operation(false, (service, value) -> CompletableFuture.completedFuture(service.add(value, 1))));
+        operations.put("addAsync", new Operation(true, (service, value) -> service.addAsync(value, 1)));
+    }
+
+    private final LoadOptions options;
+
+    private final CalculatorService service;
+
+    private final Operation[] mix;
+
+    private final LoadRecorder recorder = new LoadRecorder();
+
+    /**
+     * 计入结果的时间段（System.nanoTime），计划发出时间在该时间段内的请求计入结果
+     */
+    private long measureStart;
+
+    private long measureEnd;
+
+    private volatile boolean running = true;
+
+    public LoadGenerator(LoadOptions options, CalculatorService service) {
+        this.options = options;
+        this.service = service;
+        this.mix = LoadGenerator.parseMix(options.getMix());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        ConsumerBootstrap.init();
+        LoadGenerator.checkTolerant(RpcApplication.rpcConfig.getClient().getTolerant());
+        System.out.println(options);
+        new LoadGenerator(options, ServiceProxyFactory.getProxy(CalculatorService.class)).run();
+    }
+
+    /**
+     * 失败时返回null的容错策略会使失败的请求被计为成功，压测结果没有意义
+     */
+    static void checkTolerant(String tolerant) {
+        if (!TolerantPolicy.FAIL_FAST.equals(tolerant) && !TolerantPolicy.FAIL_OVER.equals(tolerant)) {
+            throw new IllegalArgumentException("rpc.client.tolerant=" + tolerant + " hides failed requests, use "
+                    + TolerantPolicy.FAIL_FAST + " or " + TolerantPolicy.FAIL_OVER + " for load testing");
+        }
+    }
+
+    public void run() throws InterruptedException {
+        long startTime = System.nanoTime();
+        this.measureStart = startTime + TimeUnit.SECONDS.toNanos(this.options.getWarmup());
+        this.measureEnd = this.measureStart + TimeUnit.SECONDS.toNanos(this.options.getDuration());
+        ExecutorService workers = Executors.newFixedThreadPool(this.options.getConcurrency(),
+                new DefaultThreadFactory("load-worker", true));
+        Thread reporter = new Thread(this::report, "load-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+        if ("open".equals(this.options.getMode())) {
+            this.runOpen(workers);
+        } else {
+            for (int i = 0; i < this.options.getConcurrency(); i++) {
+                workers.execute(this::runClosed);
+            }
+            LoadGenerator.parkUntil(this.measureEnd);
+            this.running = false;
+        }
+        workers.shutdown();
+        /* 等待已发出的请求完成 */
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+        reporter.join();
+        System.out.println();
+        this.recorder.printSummary(this.measureEnd - this.measureStart);
+    }
+
+    /**
+     * 闭环模式的工作线程，指定速率时每个线程的请求间隔为 线程数/速率，上一个请求超时完成时下一个请求的计划时间已过，立即发出
+     */
+    private void runClosed() {
+        long interval = this.options.getRate() > 0
+                ? TimeUnit.SECONDS.toNanos(this.options.getConcurrency()) / this.options.getRate() : 0;
+        long next = System.nanoTime();
+        while (this.running) {
+            long intendedTime;
+            if (interval > 0) {
+                LoadGenerator.parkUntil(next);
+                intendedTime = next;
+                next += interval;
+            } else {
+                intendedTime = System.nanoTime();
+            }
+            long startTime = System.nanoTime();
+            boolean error = false;
+            try {
+                this.next().call(this.service).join();
+            } catch (Exception e) {
+                error = true;
+            }
+            this.record(intendedTime, startTime, error);
+        }
+    }
+
+    /**
+     * 开环模式，在当前线程按目标速率发出请求，异步操作直接发出，同步操作交给工作线程执行
+     * 发送落后于计划时立即补发，响应时间仍从计划时间算起
+     */
+    private void runOpen(ExecutorService workers) {
+        long interval = TimeUnit.SECONDS.toNanos(1) / this.options.getRate();
+        AtomicInteger outstanding = new AtomicInteger();
+        long startTime = System.nanoTime();
+        for (long i = 0; ; i++) {
+            long intendedTime = startTime + i * interval;
+            if (intendedTime - this.measureEnd >= 0) {
+                break;
+            }
+            LoadGenerator.parkUntil(intendedTime);
+            if (outstanding.get() >= MAX_OUTSTANDING) {
+                this.record(intendedTime, System.nanoTime(), true);
+                continue;
+            }
+            outstanding.incrementAndGet();
+            Operation operation = this.next();
+            if (operation.async) {
+                long sendTime = System.nanoTime();
+                CompletableFuture<?> future;
+                try {
+                    future = operation.call(this.service);
+                } catch (Exception e) {
+                    future = new CompletableFuture<>();
+                    future.completeExceptionally(e);
+                }
+                future.whenComplete((result, e) -> {
+                    outstanding.decrementAndGet();
+                    this.record(intendedTime, sendTime, e != null);
+                });
+            } else {
+                workers.execute(() -> {
+                    long sendTime = System.nanoTime();
+                    boolean error = false;
+                    try {
+                        operation.call(this.service).join();
+                    } catch (Exception e) {
+                        error = true;
+                    }
+                    outstanding.decrementAndGet();
+                    this.record(intendedTime, sendTime, error);
+                });
+            }
+        }
+        this.running = false;
+        /* 等待异步请求完成，同步请求由工作线程池的关闭等待 */
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (outstanding.get() > 0 && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private void record(long intendedTime, long startTime, boolean error) {
+        if (intendedTime - this.measureStart >= 0 && intendedTime - this.measureEnd < 0) {
+            this.recorder.record(intendedTime, startTime, error);
+        }
+    }
+
+    /**
+     * 每秒输出一次当前区间的结果，按时间而不是发送是否结束退出，保证最后一个区间也会输出
+     */
+    private void report() {
+        long last = this.measureStart;
+        LoadGenerator.parkUntil(last);
+        for (int second = 1; ; second++) {
+            long next = this.measureStart + TimeUnit.SECONDS.toNanos(second);
+            LoadGenerator.parkUntil(next);
+            this.recorder.printInterval(second, next - last);
+            last = next;
+            if (next - this.measureEnd >= 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 等待到指定时间（System.nanoTime），parkNanos可能提前返回
+     */
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private Operation next() {
+        return this.mix[ThreadLocalRandom.current().nextInt(this.mix.length)];
+    }
+
+    /**
+     * 按权重展开调用组合，每个元素被选中的概率相同
+     */
+    private static Operation[] parseMix(String mix) {
+        List<Operation> result = new ArrayList<>();
+        for (String item : mix.split(",")) {
+            String[] pair = item.trim().split("=");
+            Operation operation = operations.get(pair[0]);
+            if (operation == null) {
+                throw new IllegalArgumentException("unknown operation: " + pair[0] + ", available: " + operations.keySet());
+            }
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1]) : 1;
+            for (int i = 0; i < weight; i++) {
+                result.add(operation);
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("empty mix");
+        }
+        return result.toArray(new Operation[0]);
+    }
+
+    /**
+     * 一种调用
+     */
+    private static class Operation {
+
+        /**
+         * 是否为异步调用，异步调用不占用发送线程
+         */
+        private final boolean async;
+
+        private final Call call;
+
+        private Operation(boolean async, Call call) {
+            this.async = async;
+            this.call = call;
+        }
+
+        private CompletableFuture<?> call(CalculatorService service) {
+            return this.call.call(service, ThreadLocalRandom.current().nextInt(1000));
+        }
+    }
+
+    private interface Call {
+
+        CompletableFuture<?> call(CalculatorService service, int value);
+    }
+}
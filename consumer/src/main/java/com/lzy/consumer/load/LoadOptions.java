@@ -0,0 +1,93 @@
+package com.lzy.consumer.load;
+
+import lombok.Data;
+import lombok.ToString;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数，命令行格式为 --参数名=值
+ */
+@Data
+@ToString
+public class LoadOptions {
+
+    /**
+     * 负载模型：closed为闭环，固定数量的线程各自等上一个请求完成后再发下一个；
+     * open为开环，按目标速率发出请求，不受响应快慢影响
+     */
+    private String mode = "closed";
+
+    /**
+     * 目标速率（单位请求数/秒），闭环下0表示不限速
+     */
+    private int rate = 0;
+
+    /**
+     * 闭环下的并发线程数；开环下执行同步调用的线程数
+     */
+    private int concurrency = 16;
+
+    /**
+     * 预热时长（单位秒），预热期间的请求不计入结果
+     */
+    private int warmup = 5;
+
+    /**
+     * 压测时长（单位秒）
+     */
+    private int duration = 30;
+
+    /**
+     * 调用组合，格式为 操作=权重，多个用逗号分隔，可用操作见LoadGenerator
+     */
+    private String mix = "add=1";
+
+    public static LoadOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException("illegal argument: " + arg + ", expected --name=value");
+            }
+            values.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+        LoadOptions options = new LoadOptions();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            switch (entry.getKey()) {
+                case "mode":
+                    options.setMode(value);
+                    break;
+                case "rate":
+                    options.setRate(Integer.parseInt(value));
+                    break;
+                case "concurrency":
+                    options.setConcurrency(Integer.parseInt(value));
+                    break;
+                case "warmup":
+                    options.setWarmup(Integer.parseInt(value));
+                    break;
+                case "duration":
+                    options.setDuration(Integer.parseInt(value));
+                    break;
+                case "mix":
+                    options.setMix(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + entry.getKey());
+            }
+        }
+        if (!"closed".equals(options.getMode()) && !"open".equals(options.getMode())) {
+            throw new IllegalArgumentException("unknown mode: " + options.getMode());
+        }
+        if ("open".equals(options.getMode()) && options.getRate() <= 0) {
+            throw new IllegalArgumentException("open loop requires --rate");
+        }
+        if (options.getConcurrency() <= 0 || options.getDuration() <= 0 || options.getWarmup() < 0) {
+            throw new IllegalArgumentException("concurrency and duration must be positive");
+        }
+        return options;
+    }
+}
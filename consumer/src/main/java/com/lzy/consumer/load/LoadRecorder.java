@@ -0,0 +1,88 @@
+package com.lzy.consumer.load;
+
+import com.lzy.rpc.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 记录压测结果
+ * 响应时间从计划发出请求的时间算起，包括请求因前一个请求过慢或发送线程繁忙而推迟发出的时间，
+ * 避免协调遗漏（coordinated omission）：系统卡顿时压测端也停止发送，卡顿期间本应发出的请求不会被计入；
+ * 服务时间从实际发出请求的时间算起，两者的差距反映了排队的程度
+ */
+public class LoadRecorder {
+
+    private final LatencyHistogram responseTime = new LatencyHistogram();
+
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * 上一个区间结束时的快照，区间的结果为两次快照之差，只在输出线程上读写
+     */
+    private LatencyHistogram.Snapshot last = this.responseTime.snapshot();
+
+    private long lastErrors;
+
+    /**
+     * 记录一个请求
+     *
+     * @param intendedTime 计划发出请求的时间（System.nanoTime）
+     * @param startTime    实际发出请求的时间
+     * @param error        是否失败
+     */
+    public void record(long intendedTime, long startTime, boolean error) {
+        long endTime = System.nanoTime();
+        this.responseTime.record(endTime - intendedTime);
+        this.serviceTime.record(endTime - startTime);
+        if (error) {
+            this.errors.increment();
+        }
+    }
+
+    /**
+     * 输出当前区间的吞吐量和响应时间，并开始新的区间
+     *
+     * @param second 压测开始后的秒数
+     * @param nanos  区间时长（单位纳秒）
+     */
+    public void printInterval(int second, long nanos) {
+        LatencyHistogram.Snapshot current = this.responseTime.snapshot();
+        LatencyHistogram.Snapshot snapshot = current.minus(this.last);
+        this.last = current;
+        long total = this.errors.sum();
+        long errors = total - this.lastErrors;
+        this.lastErrors = total;
+        System.out.printf("%4ds  %10.1f req/s  errors %6d  p50 %9.3fms  p99 %9.3fms  max %9.3fms%n", second,
+                snapshot.getCount() * 1e9 / nanos, errors, LoadRecorder.millis(snapshot.getPercentile(50)),
+                LoadRecorder.millis(snapshot.getPercentile(99)), LoadRecorder.millis(snapshot.getMax()));
+    }
+
+    /**
+     * 输出整个压测期间的结果
+     *
+     * @param nanos 压测时长（单位纳秒）
+     */
+    public void printSummary(long nanos) {
+        LatencyHistogram.Snapshot response = this.responseTime.snapshot();
+        System.out.printf("requests %d, errors %d, throughput %.1f req/s%n", response.getCount(), this.errors.sum(),
+                response.getCount() * 1e9 / nanos);
+        System.out.println("               mean        p50        p90        p99      p99.9     p99.99        max  (ms)");
+        LoadRecorder.printLatency("response", response);
+        LoadRecorder.printLatency("service", this.serviceTime.snapshot());
+    }
+
+    private static void printLatency(String name, LatencyHistogram.Snapshot snapshot) {
+        System.out.printf("%-10s %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n", name,
+                snapshot.getMean() / 1e3, LoadRecorder.millis(snapshot.getPercentile(50)),
+                LoadRecorder.millis(snapshot.getPercentile(90)), LoadRecorder.millis(snapshot.getPercentile(99)),
+                LoadRecorder.millis(snapshot.getPercentile(99.9)), LoadRecorder.millis(snapshot.getPercentile(99.99)),
+                LoadRecorder.millis(snapshot.getMax()));
+    }
+
+    private static double millis(long micros) {
+        return micros / (double) TimeUnit.MILLISECONDS.toMicros(1);
+    }
+}
@@ -3,6 +3,8 @@ package com.lzy.provider;
 import com.lzy.common.CalculatorService;
 import com.lzy.rpc.anno.RpcService;
 
+import java.util.concurrent.CompletableFuture;
+
 @RpcService
 public class CalculatorServiceImpl implements CalculatorService {
 
@@ -10,4 +12,9 @@ public class CalculatorServiceImpl implements CalculatorService {
     public Integer add(Integer a, Integer b) {
         return a+b;
     }
+
+    @Override
+    public CompletableFuture<Integer> addAsync(Integer a, Integer b) {
+        return CompletableFuture.completedFuture(a+b);
+    }
 }
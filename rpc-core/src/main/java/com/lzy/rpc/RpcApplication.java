@@ -2,14 +2,22 @@ package com.lzy.rpc;
 
 import com.lzy.rpc.config.Constant;
 import com.lzy.rpc.config.RpcConfig;
+import com.lzy.rpc.consumer.proxy.Timeouts;
 import com.lzy.rpc.consumer.retry.Retry;
 import com.lzy.rpc.consumer.tolerant.Tolerant;
 import com.lzy.rpc.loadbalancer.LoadBalancer;
+import com.lzy.rpc.metrics.PrometheusExporter;
 import com.lzy.rpc.provider.registry.Registry;
 import com.lzy.rpc.provider.registry.ZooKeeperRegistry;
+import com.lzy.rpc.provider.server.dispatcher.Dispatcher;
 import com.lzy.rpc.util.ConfigUtil;
+import com.lzy.rpc.util.JdkSerializer;
+import com.lzy.rpc.util.Serializer;
+import com.lzy.rpc.util.SerializerFactory;
 import com.lzy.rpc.util.SpiLoader;
 
+import java.util.TreeSet;
+
 /**
  * 框架类，负责执行初始化操作
  */
@@ -25,30 +33,82 @@ public class RpcApplication {
 
     public static volatile Tolerant tolerant;
 
+    public static volatile Serializer serializer = new JdkSerializer();
+
+    public static volatile Dispatcher dispatcher;
+
     public static void init(){
         if(RpcApplication.rpcConfig==null){
+            RpcConfig rpcConfig;
+            try {
+                rpcConfig = ConfigUtil.loadConfig(RpcConfig.class, Constant.DEFAULT_CONFIG_PREFIX);
+            } catch (Exception e) {
+                e.printStackTrace();
+                // 配置加载失败，使用默认值
+                rpcConfig = new RpcConfig();
+            }
+            /* 扩展实现在类初始化时读取配置，需先发布配置 */
+            RpcApplication.rpcConfig = rpcConfig;
+            /* 配置了不存在的扩展实现时直接失败，避免静默使用其他实现；在连接注册中心之前检查 */
+            try {
+                SpiLoader.init();
+                RpcApplication.loadBalancer = RpcApplication.newInstance(LoadBalancer.class,
+                        rpcConfig.getClient().getLoadBalancerPolicy());
+                RpcApplication.retry = RpcApplication.newInstance(Retry.class, rpcConfig.getClient().getRetry());
+                RpcApplication.tolerant = RpcApplication.newInstance(Tolerant.class, rpcConfig.getClient().getTolerant());
+                Serializer serializer = SerializerFactory.getSerializer(rpcConfig.getSerializer());
+                if(serializer==null){
+                    throw RpcApplication.unknown(Serializer.class, rpcConfig.getSerializer());
+                }
+                RpcApplication.serializer = serializer;
+                RpcApplication.dispatcher = RpcApplication.newInstance(Dispatcher.class, rpcConfig.getServer().getDispatcher());
+                /* 超时时间配置在首次调用时才被读取，在此提前校验 */
+                Timeouts.parse(rpcConfig.getClient().getTimeouts());
+            } catch (IllegalArgumentException e) {
+                RpcApplication.rpcConfig = null;
+                throw e;
+            } catch (ReflectiveOperationException e) {
+                RpcApplication.rpcConfig = null;
+                throw new IllegalStateException(e);
+            }
             try {
-                RpcApplication.rpcConfig = ConfigUtil.loadConfig(RpcConfig.class, Constant.DEFAULT_CONFIG_PREFIX);
-                if(RpcApplication.rpcConfig.isUseRegistry()){
+                if(rpcConfig.isUseRegistry()){
                     RpcApplication.registry = new ZooKeeperRegistry();
                     RpcApplication.registry.init();
                 }else{
                     RpcApplication.registry = null;
                 }
-                SpiLoader.init();
-                RpcApplication.loadBalancer = (LoadBalancer) SpiLoader.getClazz(LoadBalancer.class.getName(),
-                        RpcApplication.rpcConfig.getClient().getLoadBalancerPolicy()).newInstance();
-                RpcApplication.retry = (Retry) SpiLoader.getClazz(Retry.class.getName(),
-                        RpcApplication.rpcConfig.getClient().getRetry()).newInstance();
-                RpcApplication.tolerant = (Tolerant) SpiLoader.getClazz(Tolerant.class.getName(),
-                        RpcApplication.rpcConfig.getClient().getTolerant()).newInstance();
+                /* 统计端口绑定失败不影响调用 */
+                if(rpcConfig.getMetrics().getPort()>0){
+                    try {
+                        PrometheusExporter.start(rpcConfig.getMetrics());
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
             } catch (Exception e) {
                 e.printStackTrace();
-                // 配置加载失败，使用默认值
-                RpcApplication.rpcConfig = new RpcConfig();
                 RpcApplication.registry = null;
             }
             //System.out.println("init!");
         }
     }
+
+    /**
+     * 按配置标识创建SPI扩展的实例
+     *
+     * @throws IllegalArgumentException 标识不存在时抛出，异常信息中列出所有可用的标识
+     */
+    private static <T> T newInstance(Class<T> type, String key) throws ReflectiveOperationException {
+        Class<?> clazz = SpiLoader.getClazz(type.getName(), key);
+        if(clazz==null){
+            throw RpcApplication.unknown(type, key);
+        }
+        return type.cast(clazz.newInstance());
+    }
+
+    private static IllegalArgumentException unknown(Class<?> type, String key) {
+        return new IllegalArgumentException("unknown " + type.getSimpleName() + " '" + key + "', available: "
+                + new TreeSet<>(SpiLoader.getClazzes(type.getName()).keySet()));
+    }
 }
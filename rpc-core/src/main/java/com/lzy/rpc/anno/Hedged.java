@@ -0,0 +1,25 @@
+package com.lzy.rpc.anno;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 用于在服务接口上开启对冲请求，标注在接口上对所有方法生效，标注在方法上只对该方法生效且优先于接口上的配置
+ * 调用超过等待时长仍未响应时向另一个节点发送备份请求，取先返回的结果，只应用于幂等的方法
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Hedged {
+
+    /**
+     * 发送备份请求前的等待时长（单位毫秒），不大于0时使用观测到的响应时间百分位
+     */
+    long delay() default 0;
+
+    /**
+     * 未指定等待时长时，使用该方法响应时间的这一百分位作为等待时长
+     */
+    double percentile() default 95;
+}
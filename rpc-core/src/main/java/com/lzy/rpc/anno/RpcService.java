@@ -7,8 +7,14 @@ import java.lang.annotation.Target;
 
 /**
  * 用于暴露服务接口
+ * 编译时由rpc-processor模块的注解处理器把标注的类及其服务接口写入服务索引，服务端启动时读取索引而无需扫描类路径
  */
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface RpcService {
+
+    /**
+     * 暴露的服务接口，默认为该类直接实现的唯一接口，实现了多个接口时必须指定
+     */
+    Class<?> interfaceClass() default void.class;
 }
@@ -4,6 +4,7 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.util.Map;
 
 @Data
 public class RpcRequest implements Serializable {
@@ -27,4 +28,9 @@ public class RpcRequest implements Serializable {
      * 参数列表
      */
     private Object[] args;
+
+    /**
+     * 请求元数据，如调用的截止时间
+     */
+    private Map<String, String> metadata;
 }
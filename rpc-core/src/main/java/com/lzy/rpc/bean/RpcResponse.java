@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.util.Map;
 
 @Data
 public class RpcResponse implements Serializable {
@@ -28,4 +29,9 @@ public class RpcResponse implements Serializable {
      * 异常信息
      */
     private Exception exception;
+
+    /**
+     * 响应元数据，如服务端各阶段的耗时
+     */
+    private Map<String, String> metadata;
 }
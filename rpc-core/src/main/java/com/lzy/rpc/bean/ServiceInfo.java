@@ -30,7 +30,17 @@ public class ServiceInfo {
      */
     private Integer weight;
 
+    /**
+     * 注册时间（单位毫秒），用于计算预热进度
+     */
+    private Long registerTime;
+
+    /**
+     * 预热时长（单位毫秒），注册后的这段时间内有效权重从小逐渐增长到配置的权重
+     */
+    private Integer warmup;
+
     public String getAddress(){
-        return "http://"+this.serviceHost+":"+this.servicePort;
+        return this.serviceHost+":"+this.servicePort;
     }
 }
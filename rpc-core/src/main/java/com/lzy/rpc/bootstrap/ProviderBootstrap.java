@@ -1,14 +1,12 @@
 package com.lzy.rpc.bootstrap;
 
 import com.lzy.rpc.RpcApplication;
-import com.lzy.rpc.anno.RpcService;
 import com.lzy.rpc.bean.ServiceInfo;
 import com.lzy.rpc.provider.registry.LocalRegistry;
+import com.lzy.rpc.provider.registry.ServiceScanner;
 import com.lzy.rpc.provider.server.NettyRpcServer;
-import org.reflections.Reflections;
-import org.reflections.util.ConfigurationBuilder;
 
-import java.util.Set;
+import java.util.Map;
 
 /**
  * 服务端启动类
@@ -17,36 +15,22 @@ public class ProviderBootstrap {
     public static void run(){
         RpcApplication.init();
         //System.out.println(RpcApplication.rpcConfig);
-        /**
-         * 服务端启动时向服务注册中心注册
-         */
-        if(RpcApplication.registry!=null){
-            ServiceInfo serviceInfo = new ServiceInfo();
-            serviceInfo.setServiceName(RpcApplication.rpcConfig.getServer().getServiceName());
-            serviceInfo.setServiceHost(RpcApplication.rpcConfig.getServer().getHost());
-            serviceInfo.setServicePort(RpcApplication.rpcConfig.getServer().getPort());
-            serviceInfo.setWeight(RpcApplication.rpcConfig.getServer().getWeight());
-            RpcApplication.registry.register(serviceInfo);
-        }
-
         /**
          * 实例化注解标记的类，并注册至注册中心
          */
-        Reflections reflections = new Reflections(new ConfigurationBuilder().forPackages(""));
-        /* 获取指定包下的所有类,并实例化对象并缓存 */
-        Set<Class<?>> classes = reflections.getTypesAnnotatedWith(RpcService.class);
-        try {
-            for (Class<?> clazz : classes) {
+        /* 从编译时生成的服务索引和配置的包中查找服务类 */
+        Map<Class<?>, Class<?>> services = ServiceScanner.scan(RpcApplication.rpcConfig.getServer().getScanPackages());
+        for (Map.Entry<Class<?>, Class<?>> entry : services.entrySet()) {
+            try {
                 /* 实例化对象 */
-                Object object = clazz.getConstructor().newInstance();
+                Object object = entry.getKey().getConstructor().newInstance();
                 /* 获取所实现接口的名称 */
-                String serviceName = clazz.getInterfaces()[0].getName();
+                String serviceName = entry.getValue().getName();
                 serviceName = serviceName.substring(serviceName.lastIndexOf('.')+1);
-                //System.out.println(serviceName);
-                LocalRegistry.register(serviceName,object);
+                LocalRegistry.register(serviceName,entry.getValue(),object);
+            }catch (Exception e){
+                e.printStackTrace();
             }
-        }catch (Exception e){
-            e.printStackTrace();
         }
 
 
@@ -54,6 +38,22 @@ public class ProviderBootstrap {
         NettyRpcServer server = new NettyRpcServer();
 //        System.out.println(RpcApplication.rpcConfig);
 //        System.out.println(RpcApplication.rpcConfig.getServer().getPort());
-        server.start(RpcApplication.rpcConfig.getServer().getPort());
+        server.start(RpcApplication.rpcConfig.getServer().getPort(), ProviderBootstrap::register);
+    }
+
+    /**
+     * 服务端端口绑定成功后向服务注册中心注册，注册时间作为客户端计算预热进度的起点
+     */
+    private static void register(){
+        if(RpcApplication.registry!=null){
+            ServiceInfo serviceInfo = new ServiceInfo();
+            serviceInfo.setServiceName(RpcApplication.rpcConfig.getServer().getServiceName());
+            serviceInfo.setServiceHost(RpcApplication.rpcConfig.getServer().getHost());
+            serviceInfo.setServicePort(RpcApplication.rpcConfig.getServer().getPort());
+            serviceInfo.setWeight(RpcApplication.rpcConfig.getServer().getWeight());
+            serviceInfo.setRegisterTime(System.currentTimeMillis());
+            serviceInfo.setWarmup(RpcApplication.rpcConfig.getServer().getWarmup());
+            RpcApplication.registry.register(serviceInfo);
+        }
     }
 }
@@ -0,0 +1,85 @@
+package com.lzy.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 块压缩器基类，适用于一次性压缩整块数据的算法（lz4、snappy、zstd）
+ * 压缩结果格式为：| 原始长度 4 | 压缩数据 |，解压时据此一次分配目标空间
+ * 压缩库的本地实现只接受堆外内存，非堆外的输入先拷贝到堆外缓冲区
+ */
+public abstract class BlockCompressor implements Compressor {
+
+    /**
+     * 压缩length字节数据后的最大长度
+     */
+    protected abstract int maxCompressedLength(int length);
+
+    /**
+     * 将src的可读区间压缩到dst的可写区间
+     *
+     * @return 压缩后的长度
+     */
+    protected abstract int compress(ByteBuffer src, ByteBuffer dst) throws IOException;
+
+    /**
+     * 将src的可读区间解压到dst，dst的剩余空间恰为原始长度
+     *
+     * @return 解压后的长度
+     */
+    protected abstract int decompress(ByteBuffer src, ByteBuffer dst) throws IOException;
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) throws IOException {
+        int length = in.readableBytes();
+        int maxLength = this.maxCompressedLength(length);
+        out.writeInt(length);
+        out.ensureWritable(maxLength);
+        ByteBuf src = BlockCompressor.direct(in);
+        try {
+            int compressed = this.compress(src.nioBuffer(), out.nioBuffer(out.writerIndex(), maxLength));
+            out.writerIndex(out.writerIndex() + compressed);
+            in.skipBytes(length);
+        } finally {
+            if (src != in) {
+                src.release();
+            }
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("illegal decompressed length: " + length);
+        }
+        out.ensureWritable(length);
+        ByteBuf src = BlockCompressor.direct(in);
+        try {
+            int decompressed = this.decompress(src.nioBuffer(), out.nioBuffer(out.writerIndex(), length));
+            if (decompressed != length) {
+                throw new IOException("decompressed length mismatch, expected " + length + " but was " + decompressed);
+            }
+            out.writerIndex(out.writerIndex() + length);
+            in.skipBytes(in.readableBytes());
+        } finally {
+            if (src != in) {
+                src.release();
+            }
+        }
+    }
+
+    /**
+     * 返回可直接交给本地实现的堆外缓冲区，必要时拷贝
+     */
+    private static ByteBuf direct(ByteBuf buf) {
+        if (buf.isDirect() && buf.nioBufferCount() == 1) {
+            return buf;
+        }
+        ByteBuf copy = buf.alloc().directBuffer(buf.readableBytes());
+        copy.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+        return copy;
+    }
+}
@@ -0,0 +1,28 @@
+package com.lzy.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+
+/**
+ * 压缩器接口，位于序列化与传输之间，对序列化后的消息体进行压缩
+ */
+public interface Compressor {
+
+    /**
+     * 压缩器标识，写入消息头，接收方据此选择解压器
+     */
+    byte getId();
+
+    /**
+     * 压缩in中全部可读字节并写入out
+     */
+    void compress(ByteBuf in, ByteBuf out) throws IOException;
+
+    /**
+     * 解压in中全部可读字节并写入out
+     *
+     * @param maxLength 解压后的最大长度，超过时抛出异常，防止恶意数据耗尽内存
+     */
+    void decompress(ByteBuf in, ByteBuf out, int maxLength) throws IOException;
+}
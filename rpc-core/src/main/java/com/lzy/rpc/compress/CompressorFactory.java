@@ -0,0 +1,50 @@
+package com.lzy.rpc.compress;
+
+import com.lzy.rpc.util.SpiLoader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 压缩器工厂
+ * 通过SPI加载所有压缩器，可按配置标识或消息头中的压缩器标识获取
+ */
+public class CompressorFactory {
+
+    /**
+     * 结构为：配置标识:压缩器
+     */
+    private static final Map<String, Compressor> keyMap = new HashMap<>();
+
+    /**
+     * 下标为消息头中的压缩器标识
+     */
+    private static final Compressor[] idTable = new Compressor[256];
+
+    static {
+        SpiLoader.init();
+        for (Map.Entry<String, Class<?>> entry : SpiLoader.getClazzes(Compressor.class.getName()).entrySet()) {
+            try {
+                Compressor compressor = (Compressor) entry.getValue().newInstance();
+                keyMap.put(entry.getKey(), compressor);
+                idTable[compressor.getId() & 0xFF] = compressor;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 按配置标识获取压缩器，不压缩或不存在时返回null
+     */
+    public static Compressor getCompressor(String key) {
+        return key == null ? null : keyMap.get(key);
+    }
+
+    /**
+     * 按消息头中的压缩器标识获取压缩器，不存在时返回null
+     */
+    public static Compressor getCompressor(byte id) {
+        return idTable[id & 0xFF];
+    }
+}
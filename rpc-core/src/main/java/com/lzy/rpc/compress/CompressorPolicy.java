@@ -0,0 +1,22 @@
+package com.lzy.rpc.compress;
+
+/**
+ * 压缩器常量
+ */
+public class CompressorPolicy {
+
+    public static final String NONE = "none";
+
+    public static final String GZIP = "gzip";
+
+    public static final String LZ4 = "lz4";
+
+    public static final String SNAPPY = "snappy";
+
+    public static final String ZSTD = "zstd";
+
+    /**
+     * 消息头中表示消息体未压缩的标识
+     */
+    public static final byte NONE_ID = 0;
+}
@@ -0,0 +1,41 @@
+package com.lzy.rpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip压缩器，基于JDK实现，压缩率较高但速度较慢
+ */
+public class GzipCompressor implements Compressor {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public byte getId() {
+        return 1;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) throws IOException {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new ByteBufOutputStream(out), BUFFER_SIZE)) {
+            in.readBytes(gzip, in.readableBytes());
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int maxLength) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteBufInputStream(in), BUFFER_SIZE)) {
+            int start = out.writerIndex();
+            while (out.writeBytes(gzip, BUFFER_SIZE) != -1) {
+                if (out.writerIndex() - start > maxLength) {
+                    throw new IOException("decompressed length exceeds " + maxLength);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.lzy.rpc.compress;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * lz4压缩器，压缩和解压速度极快，适合对延迟敏感的场景
+ */
+public class Lz4Compressor extends BlockCompressor {
+
+    private static final LZ4Factory factory = LZ4Factory.fastestInstance();
+
+    private static final LZ4Compressor compressor = factory.fastCompressor();
+
+    private static final LZ4SafeDecompressor decompressor = factory.safeDecompressor();
+
+    @Override
+    public byte getId() {
+        return 2;
+    }
+
+    @Override
+    protected int maxCompressedLength(int length) {
+        return compressor.maxCompressedLength(length);
+    }
+
+    @Override
+    protected int compress(ByteBuffer src, ByteBuffer dst) {
+        return compressor.compress(src, src.position(), src.remaining(), dst, dst.position(), dst.remaining());
+    }
+
+    @Override
+    protected int decompress(ByteBuffer src, ByteBuffer dst) throws IOException {
+        try {
+            return decompressor.decompress(src, src.position(), src.remaining(), dst, dst.position(), dst.remaining());
+        } catch (LZ4Exception e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.lzy.rpc.compress;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * snappy压缩器，速度快，压缩率适中
+ */
+public class SnappyCompressor extends BlockCompressor {
+
+    @Override
+    public byte getId() {
+        return 3;
+    }
+
+    @Override
+    protected int maxCompressedLength(int length) {
+        return Snappy.maxCompressedLength(length);
+    }
+
+    @Override
+    protected int compress(ByteBuffer src, ByteBuffer dst) throws IOException {
+        return Snappy.compress(src, dst);
+    }
+
+    @Override
+    protected int decompress(ByteBuffer src, ByteBuffer dst) throws IOException {
+        if (Snappy.uncompressedLength(src) != dst.remaining()) {
+            throw new IOException("snappy uncompressed length mismatch");
+        }
+        return Snappy.uncompress(src, dst);
+    }
+}
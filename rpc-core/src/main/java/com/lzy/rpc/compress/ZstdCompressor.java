@@ -0,0 +1,46 @@
+package com.lzy.rpc.compress;
+
+import com.github.luben.zstd.Zstd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * zstd压缩器，压缩率接近gzip而速度远快于gzip
+ */
+public class ZstdCompressor extends BlockCompressor {
+
+    /**
+     * 压缩级别，3为zstd的默认级别
+     */
+    private static final int LEVEL = 3;
+
+    @Override
+    public byte getId() {
+        return 4;
+    }
+
+    @Override
+    protected int maxCompressedLength(int length) {
+        return (int) Zstd.compressBound(length);
+    }
+
+    @Override
+    protected int compress(ByteBuffer src, ByteBuffer dst) throws IOException {
+        return ZstdCompressor.check(Zstd.compressDirectByteBuffer(dst, dst.position(), dst.remaining(),
+                src, src.position(), src.remaining(), LEVEL));
+    }
+
+    @Override
+    protected int decompress(ByteBuffer src, ByteBuffer dst) throws IOException {
+        return ZstdCompressor.check(Zstd.decompressDirectByteBuffer(dst, dst.position(), dst.remaining(),
+                src, src.position(), src.remaining()));
+    }
+
+    private static int check(long result) throws IOException {
+        if (Zstd.isError(result)) {
+            throw new IOException("zstd error: " + Zstd.getErrorName(result));
+        }
+        return (int) result;
+    }
+}
@@ -1,5 +1,6 @@
 package com.lzy.rpc.config;
 
+import com.lzy.rpc.compress.CompressorPolicy;
 import com.lzy.rpc.consumer.retry.RetryPolicy;
 import com.lzy.rpc.consumer.tolerant.TolerantPolicy;
 import com.lzy.rpc.loadbalancer.LoadBalancerPolicy;
@@ -33,17 +34,203 @@ public class ClientConfig {
      */
     private String loadBalancerPolicy = LoadBalancerPolicy.RANDOM;
 
+    /**
+     * 一致性哈希策略下参与哈希的参数下标，多个用逗号分隔
+     */
+    private String hashArguments = "0";
+
+    /**
+     * 一致性哈希策略下每单位权重对应的虚拟节点数
+     */
+    private Integer hashNodes = 160;
+
+    /**
+     * peakEwma策略下响应时间移动平均的衰减时间常数（单位毫秒），越小对节点变快的反应越灵敏
+     */
+    private Integer ewmaDecay = 10000;
+
     /**
      * 重试策略
      */
     private String retry = RetryPolicy.NO_RETRY;
 
+    /**
+     * exponentialBackoff策略的最大尝试次数（含首次请求）
+     */
+    private Integer retryMaxAttempts = 3;
+
+    /**
+     * exponentialBackoff策略的基础重试间隔（单位毫秒），每次重试翻倍
+     */
+    private Integer retryBaseDelay = 50;
+
+    /**
+     * exponentialBackoff策略的最大重试间隔（单位毫秒）
+     */
+    private Integer retryMaxDelay = 2000;
+
+    /**
+     * 重试预算，重试次数占请求数的最大比例
+     */
+    private Double retryBudgetRatio = 0.1;
+
+    /**
+     * 重试预算的令牌桶容量，即流量很小时最多可连续重试的次数
+     */
+    private Integer retryBudgetCapacity = 100;
+
+    /**
+     * 对冲请求的最小等待时长（单位毫秒），观测到的响应时间百分位小于该值时使用该值
+     */
+    private Integer hedgeMinDelay = 5;
+
+    /**
+     * 对冲预算，备份请求数占开启对冲的请求数的最大比例
+     */
+    private Double hedgeBudgetRatio = 0.05;
+
+    /**
+     * 对冲预算的令牌桶容量，即流量很小时最多可连续发送的备份请求数
+     */
+    private Integer hedgeBudgetCapacity = 20;
+
     /**
      * 容错策略
      */
     private String tolerant = TolerantPolicy.DEFAULT_TOLERANT;
 
+    /**
+     * failBack策略的重发间隔（单位毫秒）
+     */
+    private Integer failbackDelay = 5000;
+
+    /**
+     * failBack策略下每个请求最多重发的次数
+     */
+    private Integer failbackMaxAttempts = 3;
+
+    /**
+     * failBack策略下等待重发的请求数上限，超出时丢弃
+     */
+    private Integer failbackQueueSize = 1000;
+
+    /**
+     * 是否开启节点熔断，熔断器打开的节点暂时不再分配请求，默认关闭
+     */
+    private Boolean circuitBreaker = false;
+
+    /**
+     * 熔断器统计失败率和慢调用率的滑动窗口长度（单位毫秒）
+     */
+    private Integer breakerWindow = 10000;
+
+    /**
+     * 滑动窗口内的请求数达到该值后才会熔断
+     */
+    private Integer breakerMinRequests = 20;
+
+    /**
+     * 熔断的失败率阈值，失败只包括连接失败、超时、服务端拒绝执行
+     */
+    private Double breakerFailureRate = 0.5;
+
+    /**
+     * 熔断的慢调用率阈值
+     */
+    private Double breakerSlowCallRate = 0.8;
+
+    /**
+     * 响应时间不小于该值（单位毫秒）的调用记为慢调用
+     */
+    private Integer breakerSlowCallThreshold = 1000;
+
+    /**
+     * 熔断器打开后经过该时长（单位毫秒）进入半开状态
+     */
+    private Integer breakerOpenDuration = 5000;
+
+    /**
+     * 半开状态下放行的探测请求数，全部成功后关闭熔断器
+     */
+    private Integer breakerHalfOpenRequests = 5;
+
+    /**
+     * 是否开启自适应并发限制，每个服务在每个节点上的并发上限根据响应时间自动调整，超出上限的请求转到其他节点
+     */
+    private Boolean adaptiveLimit = false;
+
+    /**
+     * 自适应并发限制的初始上限
+     */
+    private Integer adaptiveLimitInitial = 20;
+
+    /**
+     * 自适应并发限制的最大上限
+     */
+    private Integer adaptiveLimitMax = 1000;
+
+    /**
+     * 记录阶段耗时的调用比例，0表示不记录，1表示全部记录
+     */
+    private Double traceSampleRate = 0.0;
+
+    /**
+     * 慢调用阈值（单位毫秒），超过该时长的调用写入慢调用日志，0表示不记录
+     */
+    private Integer slowCallThreshold = 1000;
+
+    /**
+     * 每个服务节点维持的连接数
+     */
+    private Integer connections = 2;
+
+    /**
+     * 建立连接超时时间（单位毫秒）
+     */
+    private Integer connectTimeout = 3000;
+
+    /**
+     * 请求超时时间（单位毫秒）
+     */
+    private Integer timeout = 5000;
+
+    /**
+     * 按服务或方法单独设置的请求超时时间（单位毫秒），格式为 接口名=超时时间,接口名.方法名=超时时间，
+     * 多个用逗号分隔，方法的配置优先于服务的配置，未配置的使用timeout
+     */
+    private String timeouts = "";
+
+    /**
+     * 客户端IO线程数，0表示使用netty默认值（CPU核数*2）
+     */
+    private Integer ioThreads = 0;
+
+    /**
+     * 消息体压缩器，用于压缩发出的请求，接收方按消息头中的压缩器标识解压
+     */
+    private String compressor = CompressorPolicy.NONE;
+
+    /**
+     * 消息体压缩阈值（单位字节），序列化后不小于该长度才压缩
+     */
+    private Integer compressThreshold = 2048;
+
+    /**
+     * 是否开启请求批量发送，开启后同一连接上短时间内的多个请求合并为一个批量帧发送
+     */
+    private Boolean batch = false;
+
+    /**
+     * 批量发送的等待窗口（单位微秒），首个请求写入后最多等待该时间
+     */
+    private Integer batchWindow = 200;
+
+    /**
+     * 单个批量帧最多包含的请求数，达到后立即发送
+     */
+    private Integer batchSize = 32;
+
     public String getAddress(){
-        return "http://"+this.serverHost+":"+this.serverPort;
+        return this.serverHost+":"+this.serverPort;
     }
 }
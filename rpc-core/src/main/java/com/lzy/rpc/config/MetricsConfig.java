@@ -0,0 +1,22 @@
+package com.lzy.rpc.config;
+
+import lombok.Data;
+import lombok.ToString;
+
+/**
+ * 调用统计配置
+ */
+@Data
+@ToString
+public class MetricsConfig {
+
+    /**
+     * 以Prometheus文本格式暴露调用统计的HTTP端口，0表示不暴露（仍可通过MetricsRegistry查询）
+     */
+    private Integer port = 0;
+
+    /**
+     * 暴露调用统计的HTTP路径
+     */
+    private String path = "/metrics";
+}
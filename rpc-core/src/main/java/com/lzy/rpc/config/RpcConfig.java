@@ -1,5 +1,6 @@
 package com.lzy.rpc.config;
 
+import com.lzy.rpc.util.SerializerPolicy;
 import lombok.Data;
 import lombok.ToString;
 
@@ -12,6 +13,11 @@ public class RpcConfig {
      */
     private boolean useRegistry = false;
 
+    /**
+     * 序列化器，客户端发送请求时使用，服务端按请求中的序列化器标识解析并回复
+     */
+    private String serializer = SerializerPolicy.JDK;
+
     /**
      * 服务端配置
      */
@@ -27,4 +33,9 @@ public class RpcConfig {
      */
     private RegistryConfig registry = new RegistryConfig();
 
+    /**
+     * 调用统计配置
+     */
+    private MetricsConfig metrics = new MetricsConfig();
+
 }
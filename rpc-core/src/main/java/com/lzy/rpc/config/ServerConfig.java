@@ -1,5 +1,7 @@
 package com.lzy.rpc.config;
 
+import com.lzy.rpc.compress.CompressorPolicy;
+import com.lzy.rpc.provider.server.dispatcher.DispatcherPolicy;
 import lombok.Data;
 import lombok.ToString;
 
@@ -29,4 +31,65 @@ public class ServerConfig {
      * 服务权重
      */
     private Integer weight = 1;
+
+    /**
+     * 预热时长（单位毫秒），服务启动后的这段时间内客户端逐渐增加分配给它的流量，0表示不预热，默认不预热
+     */
+    private Integer warmup = 0;
+
+    /**
+     * 请求分发策略，决定服务方法在哪个线程上执行
+     */
+    private String dispatcher = DispatcherPolicy.FIXED;
+
+    /**
+     * 业务线程池大小
+     */
+    private Integer threads = 200;
+
+    /**
+     * 业务线程池的队列长度，0表示不排队
+     */
+    private Integer queues = 1024;
+
+    /**
+     * 隔离策略下每个服务独立线程池的大小
+     */
+    private Integer isolatedThreads = 50;
+
+    /**
+     * 消息体压缩器，用于压缩发出的响应，接收方按消息头中的压缩器标识解压
+     */
+    private String compressor = CompressorPolicy.NONE;
+
+    /**
+     * 消息体压缩阈值（单位字节），序列化后不小于该长度才压缩
+     */
+    private Integer compressThreshold = 2048;
+
+    /**
+     * 最大连接数，超出后新建立的连接会被立即关闭，0表示不限制
+     */
+    private Integer maxConnections = 0;
+
+    /**
+     * 同时处理（排队和执行中）的请求数上限，超出的请求直接回复过载，0表示不限制
+     */
+    private Integer maxConcurrency = 0;
+
+    /**
+     * 每个服务同时处理的请求数上限，格式为 接口名=上限，多个用逗号分隔，未配置的服务不限制
+     */
+    private String serviceConcurrency = "";
+
+    /**
+     * 单个连接上处理中的请求数达到该值时暂停读取该连接，降到一半时恢复，使压力通过TCP传递给客户端
+     */
+    private Integer maxPendingPerConnection = 1024;
+
+    /**
+     * 查找@RpcService标注的类的包，多个用逗号分隔，与编译时生成的服务索引合并；
+     * 类路径上没有服务索引且未配置时扫描整个类路径
+     */
+    private String scanPackages = "";
 }
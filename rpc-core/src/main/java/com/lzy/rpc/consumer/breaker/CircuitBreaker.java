@@ -0,0 +1,339 @@
+package com.lzy.rpc.consumer.breaker;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.config.ClientConfig;
+import com.lzy.rpc.provider.registry.Registry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务节点的熔断器，由客户端代理在每次调用结束时记录结果
+ * 关闭状态下统计滑动时间窗口内的失败率和慢调用率，任一超过阈值时打开；
+ * 打开状态下不再向该节点发送请求，经过一段时间后进入半开状态，放行少量探测请求，
+ * 探测请求全部成功则关闭，任一失败或过慢则重新打开
+ * 失败只包括连接失败、超时、服务端拒绝执行等节点层面的失败，服务方法抛出的业务异常不计入
+ */
+public class CircuitBreaker {
+
+    public static final int CLOSED = 0;
+
+    public static final int OPEN = 1;
+
+    public static final int HALF_OPEN = 2;
+
+    private static final ClientConfig clientConfig = RpcApplication.rpcConfig == null
+            ? new ClientConfig() : RpcApplication.rpcConfig.getClient();
+
+    /**
+     * 滑动窗口划分的桶数
+     */
+    private static final int BUCKETS = 10;
+
+    /**
+     * 熔断器，结构为：服务节点地址:熔断器
+     */
+    private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 任一熔断器状态变化时递增，用于判断按熔断状态过滤的节点列表是否失效
+     */
+    private static final AtomicLong version = new AtomicLong();
+
+    static {
+        /* 节点下线时删除该节点的熔断器 */
+        Registry.addOfflineListener(CircuitBreaker::remove);
+    }
+
+    private final ClientConfig config;
+
+    /**
+     * 每个桶覆盖的时长（单位纳秒）
+     */
+    private final long bucketNanos;
+
+    private final long slowCallNanos;
+
+    private final long openNanos;
+
+    /**
+     * 状态和半开状态下的探测计数打包在一起原子更新，使状态转换和计数重置不可分割：
+     * 低2位为状态，2~31位为已放行的探测请求数，高32位为已成功的探测请求数
+     */
+    private final AtomicLong state = new AtomicLong(CLOSED);
+
+    private final Bucket[] buckets = new Bucket[BUCKETS];
+
+    /**
+     * 打开的时间
+     */
+    private volatile long openTime;
+
+    CircuitBreaker(ClientConfig config) {
+        this.config = config;
+        this.bucketNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(config.getBreakerWindow()) / BUCKETS, 1);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getBreakerSlowCallThreshold());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(config.getBreakerOpenDuration());
+        for (int i = 0; i < BUCKETS; i++) {
+            this.buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * 获取指定节点的熔断器，不存在时创建
+     */
+    public static CircuitBreaker get(String address) {
+        CircuitBreaker breaker = breakers.get(address);
+        return breaker != null ? breaker : breakers.computeIfAbsent(address, key -> new CircuitBreaker(clientConfig));
+    }
+
+    /**
+     * 移除节点的熔断器（节点下线时调用）
+     */
+    public static void remove(String address) {
+        if (breakers.remove(address) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * 熔断器状态的版本号
+     */
+    static long version() {
+        return version.get();
+    }
+
+    /**
+     * 节点当前是否可以接收请求，不占用半开状态的探测名额，用于选择节点前过滤
+     */
+    public boolean isAvailable() {
+        if (!this.config.getCircuitBreaker()) {
+            return true;
+        }
+        long current = this.state.get();
+        switch (CircuitBreaker.stateOf(current)) {
+            case OPEN:
+                return System.nanoTime() - this.openTime >= this.openNanos;
+            case HALF_OPEN:
+                return CircuitBreaker.probesOf(current) < this.config.getBreakerHalfOpenRequests();
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 打开状态下重新可用的时间（System.nanoTime），其他状态返回0
+     */
+    long availableTime() {
+        return this.getState() == OPEN ? this.openTime + this.openNanos : 0;
+    }
+
+    /**
+     * 发送请求前获取许可，打开状态到期时转为半开状态，半开状态下占用一个探测名额
+     *
+     * @return 是否允许发送
+     */
+    public boolean tryAcquire() {
+        if (!this.config.getCircuitBreaker()) {
+            return true;
+        }
+        while (true) {
+            long current = this.state.get();
+            int state = CircuitBreaker.stateOf(current);
+            if (state == CLOSED) {
+                return true;
+            }
+            if (state == OPEN) {
+                if (System.nanoTime() - this.openTime < this.openNanos) {
+                    return false;
+                }
+                /* 转为半开状态的同时重置探测计数，并占用第一个探测名额 */
+                if (this.state.compareAndSet(current, CircuitBreaker.pack(HALF_OPEN, 1, 0))) {
+                    version.incrementAndGet();
+                    return true;
+                }
+                continue;
+            }
+            int probes = CircuitBreaker.probesOf(current);
+            if (probes >= this.config.getBreakerHalfOpenRequests()) {
+                return false;
+            }
+            if (this.state.compareAndSet(current, CircuitBreaker.pack(HALF_OPEN, probes + 1, CircuitBreaker.successesOf(current)))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 放弃已获取的许可而不记录结果（请求被取消，如对冲中落败的请求），半开状态下归还探测名额
+     */
+    public void release() {
+        if (!this.config.getCircuitBreaker()) {
+            return;
+        }
+        while (true) {
+            long current = this.state.get();
+            int probes = CircuitBreaker.probesOf(current);
+            if (CircuitBreaker.stateOf(current) != HALF_OPEN || probes == 0) {
+                return;
+            }
+            if (this.state.compareAndSet(current, CircuitBreaker.pack(HALF_OPEN, probes - 1, CircuitBreaker.successesOf(current)))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 记录一次调用的结果
+     *
+     * @param nanos   调用耗时（单位纳秒）
+     * @param failure 是否为节点层面的失败
+     */
+    public void record(long nanos, boolean failure) {
+        if (!this.config.getCircuitBreaker()) {
+            return;
+        }
+        boolean slow = nanos >= this.slowCallNanos;
+        int current = this.getState();
+        if (current == HALF_OPEN) {
+            if (failure || slow) {
+                this.open(HALF_OPEN);
+            } else {
+                this.probeSucceeded();
+            }
+            return;
+        }
+        if (current != CLOSED) {
+            return;
+        }
+        long now = System.nanoTime();
+        long epoch = now / this.bucketNanos;
+        Bucket bucket = this.buckets[(int) (epoch % BUCKETS)];
+        if (bucket.epoch != epoch) {
+            bucket.reset(epoch);
+        }
+        bucket.total.increment();
+        if (failure) {
+            bucket.failures.increment();
+        }
+        if (slow) {
+            bucket.slowCalls.increment();
+        }
+        /* 只有失败和慢调用可能使熔断器打开，成功的调用无需计算 */
+        if (failure || slow) {
+            this.evaluate(epoch);
+        }
+    }
+
+    /**
+     * 计算滑动窗口内的失败率和慢调用率
+     */
+    private void evaluate(long epoch) {
+        long total = 0, failures = 0, slowCalls = 0;
+        for (Bucket bucket : this.buckets) {
+            if (epoch - bucket.epoch < BUCKETS) {
+                total += bucket.total.sum();
+                failures += bucket.failures.sum();
+                slowCalls += bucket.slowCalls.sum();
+            }
+        }
+        if (total < this.config.getBreakerMinRequests()) {
+            return;
+        }
+        if (failures >= total * this.config.getBreakerFailureRate()
+                || slowCalls >= total * this.config.getBreakerSlowCallRate()) {
+            this.open(CLOSED);
+        }
+    }
+
+    /**
+     * 半开状态下一个探测请求成功，成功数达到探测请求数时关闭并清空窗口
+     */
+    private void probeSucceeded() {
+        while (true) {
+            long current = this.state.get();
+            if (CircuitBreaker.stateOf(current) != HALF_OPEN) {
+                return;
+            }
+            int successes = CircuitBreaker.successesOf(current) + 1;
+            if (successes < this.config.getBreakerHalfOpenRequests()) {
+                if (this.state.compareAndSet(current, CircuitBreaker.pack(HALF_OPEN, CircuitBreaker.probesOf(current), successes))) {
+                    return;
+                }
+                continue;
+            }
+            if (this.state.compareAndSet(current, CircuitBreaker.pack(CLOSED, 0, 0))) {
+                for (Bucket bucket : this.buckets) {
+                    bucket.reset(-1);
+                }
+                version.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void open(int expected) {
+        while (true) {
+            long current = this.state.get();
+            if (CircuitBreaker.stateOf(current) != expected) {
+                return;
+            }
+            /* 先记录打开时间，使读到打开状态的线程不会看到上一次的打开时间 */
+            this.openTime = System.nanoTime();
+            if (this.state.compareAndSet(current, CircuitBreaker.pack(OPEN, 0, 0))) {
+                version.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    public int getState() {
+        return CircuitBreaker.stateOf(this.state.get());
+    }
+
+    private static long pack(int state, int probes, int successes) {
+        return (long) successes << 32 | (long) probes << 2 | state;
+    }
+
+    private static int stateOf(long packed) {
+        return (int) (packed & 3);
+    }
+
+    private static int probesOf(long packed) {
+        return (int) packed >>> 2;
+    }
+
+    private static int successesOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    /**
+     * 滑动窗口中的一个桶，记录一段时间内的调用数、失败数和慢调用数
+     */
+    private static class Bucket {
+
+        /**
+         * 桶当前对应的时间段编号
+         */
+        private volatile long epoch = -1;
+
+        private final LongAdder total = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        private final LongAdder slowCalls = new LongAdder();
+
+        private synchronized void reset(long epoch) {
+            if (this.epoch == epoch) {
+                return;
+            }
+            this.total.reset();
+            this.failures.reset();
+            this.slowCalls.reset();
+            this.epoch = epoch;
+        }
+    }
+}
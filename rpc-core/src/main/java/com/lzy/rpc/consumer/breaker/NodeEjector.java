@@ -0,0 +1,89 @@
+package com.lzy.rpc.consumer.breaker;
+
+import com.lzy.rpc.bean.ServiceInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在交给负载均衡器之前剔除熔断器打开的节点
+ * 负载均衡器按列表对象缓存选择结构，因此过滤结果按服务缓存，
+ * 服务列表、熔断器状态都未变化且没有节点到达重新可用的时间时返回同一个列表对象；没有节点被剔除时直接返回原列表
+ */
+public class NodeEjector {
+
+    /**
+     * 过滤结果缓存，结构为：服务名称:过滤结果
+     */
+    private static final Map<String, Ejection> ejections = new ConcurrentHashMap<>();
+
+    /**
+     * 过滤掉熔断器打开的节点
+     *
+     * @param serviceName 服务名称
+     * @param services    服务发现得到的节点列表
+     * @return 可用的节点列表，所有节点都被剔除时返回空列表
+     */
+    public static List<ServiceInfo> filter(String serviceName, List<ServiceInfo> services) {
+        long version = CircuitBreaker.version();
+        long now = System.nanoTime();
+        Ejection ejection = ejections.get(serviceName);
+        if (ejection != null && ejection.source == services && ejection.version == version
+                && (ejection.expireTime == 0 || now - ejection.expireTime < 0)) {
+            return ejection.available;
+        }
+        List<ServiceInfo> available = null;
+        long expireTime = 0;
+        for (int i = 0; i < services.size(); i++) {
+            ServiceInfo serviceInfo = services.get(i);
+            CircuitBreaker breaker = CircuitBreaker.get(serviceInfo.getAddress());
+            if (breaker.isAvailable()) {
+                if (available != null) {
+                    available.add(serviceInfo);
+                }
+                continue;
+            }
+            /* 出现第一个被剔除的节点时复制之前的节点 */
+            if (available == null) {
+                available = new ArrayList<>(services.subList(0, i));
+            }
+            long availableTime = breaker.availableTime();
+            if (availableTime != 0 && (expireTime == 0 || availableTime - expireTime < 0)) {
+                expireTime = availableTime;
+            }
+        }
+        List<ServiceInfo> result = available == null ? services : Collections.unmodifiableList(available);
+        ejections.put(serviceName, new Ejection(services, version, expireTime, result));
+        return result;
+    }
+
+    private static class Ejection {
+
+        /**
+         * 过滤前的列表
+         */
+        private final List<ServiceInfo> source;
+
+        /**
+         * 过滤时熔断器状态的版本号
+         */
+        private final long version;
+
+        /**
+         * 最早有被剔除节点重新可用的时间（System.nanoTime），0表示不会自动失效
+         */
+        private final long expireTime;
+
+        private final List<ServiceInfo> available;
+
+        private Ejection(List<ServiceInfo> source, long version, long expireTime, List<ServiceInfo> available) {
+            this.source = source;
+            this.version = version;
+            this.expireTime = expireTime;
+            this.available = available;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.lzy.rpc.consumer.client;
+
+import com.lzy.rpc.bean.ServiceInfo;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 单个服务节点的连接池
+ * 池中维持固定数量的长连接，请求轮流使用各连接；连接懒建立，断开后在下次使用时重建
+ */
+public class ConnectionPool {
+
+    private final Bootstrap bootstrap;
+
+    private final ServiceInfo serviceInfo;
+
+    /**
+     * 连接槽位，每个槽位保存一次连接尝试的结果
+     */
+    private final AtomicReferenceArray<ChannelFuture> channels;
+
+    /**
+     * 当前轮询的下标
+     */
+    private final AtomicInteger currentIndex = new AtomicInteger(0);
+
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean closed = false;
+
+    public ConnectionPool(Bootstrap bootstrap, ServiceInfo serviceInfo, int size) {
+        this.bootstrap = bootstrap;
+        this.serviceInfo = serviceInfo;
+        this.channels = new AtomicReferenceArray<>(Math.max(size, 1));
+    }
+
+    /**
+     * 获取一条可用连接（可能仍在建立中）
+     */
+    public ChannelFuture acquire() {
+        int index = Math.abs(this.currentIndex.getAndIncrement() % this.channels.length());
+        while (true) {
+            ChannelFuture channelFuture = this.channels.get(index);
+            if (isUsable(channelFuture)) {
+                return channelFuture;
+            }
+            /* 槽位为空或连接已断开，重新建立；并发时只有一个线程能替换成功，失败的线程重新读取槽位 */
+            ChannelFuture newFuture = this.bootstrap.connect(this.serviceInfo.getServiceHost(), this.serviceInfo.getServicePort());
+            if (this.channels.compareAndSet(index, channelFuture, newFuture)) {
+                if (channelFuture != null) {
+                    channelFuture.channel().close();
+                }
+                /* 连接池已关闭时不保留新连接，使用该连接的请求随连接关闭而失败 */
+                if (this.closed) {
+                    this.channels.compareAndSet(index, newFuture, null);
+                    newFuture.channel().close();
+                }
+                return newFuture;
+            }
+            newFuture.channel().close();
+        }
+    }
+
+    /**
+     * 关闭池中所有连接
+     */
+    public void close() {
+        this.closed = true;
+        for (int i = 0; i < this.channels.length(); i++) {
+            ChannelFuture channelFuture = this.channels.getAndSet(i, null);
+            if (channelFuture != null) {
+                channelFuture.channel().close();
+            }
+        }
+    }
+
+    /**
+     * 正在连接或连接仍然活跃
+     */
+    private static boolean isUsable(ChannelFuture channelFuture) {
+        return channelFuture != null && (!channelFuture.isDone() || channelFuture.channel().isActive());
+    }
+}
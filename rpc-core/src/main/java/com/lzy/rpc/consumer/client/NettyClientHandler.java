@@ -0,0 +1,90 @@
+package com.lzy.rpc.consumer.client;
+
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.exception.RpcException;
+import com.lzy.rpc.protocol.MessageStatus;
+import com.lzy.rpc.protocol.MessageType;
+import com.lzy.rpc.protocol.ProtocolMessage;
+import com.lzy.rpc.trace.CallTrace;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端处理器，每个连接一个实例，负责将响应按请求id交付给等待的调用方
+ */
+public class NettyClientHandler extends SimpleChannelInboundHandler<ProtocolMessage<?>> {
+
+    /**
+     * 该连接上等待响应的请求，结构为：请求id:响应
+     */
+    private final Map<Long, CompletableFuture<RpcResponse>> pendingRequests = new ConcurrentHashMap<>();
+
+    void addPendingRequest(long requestId, CompletableFuture<RpcResponse> future) {
+        this.pendingRequests.put(requestId, future);
+    }
+
+    void removePendingRequest(long requestId) {
+        this.pendingRequests.remove(requestId);
+    }
+
+    void complete(long requestId, RpcResponse rpcResponse, Throwable cause) {
+        CompletableFuture<RpcResponse> future = this.pendingRequests.remove(requestId);
+        if (future == null) {
+            return;
+        }
+        if (cause != null) {
+            future.completeExceptionally(cause);
+        } else {
+            future.complete(rpcResponse);
+        }
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ProtocolMessage<?> protocolMessage) throws Exception {
+        /* 批量响应逐条交付 */
+        if (protocolMessage.getHeader().getType() == MessageType.BATCH_RESPONSE) {
+            for (ProtocolMessage<?> response : ProtocolMessage.messagesOf(protocolMessage)) {
+                this.channelRead0(ctx, response);
+            }
+            return;
+        }
+        ProtocolMessage.Header header = protocolMessage.getHeader();
+        if (header.getStatus() == MessageStatus.OVERLOADED) {
+            this.complete(header.getRequestId(), null, new RpcException("server overloaded", true));
+        } else if (header.getStatus() != MessageStatus.OK || protocolMessage.getBody() == null) {
+            this.complete(header.getRequestId(), null, new IOException("bad response, status: " + header.getStatus()));
+        } else {
+            RpcResponse rpcResponse = (RpcResponse) protocolMessage.getBody();
+            /* 只有采样的请求的响应带有元数据，记录解析响应的耗时 */
+            if (rpcResponse.getMetadata() != null && rpcResponse.getMetadata().containsKey(CallTrace.TIMING)) {
+                rpcResponse.getMetadata().put(CallTrace.RESPONSE_DECODE,
+                        String.valueOf(TimeUnit.NANOSECONDS.toMicros(protocolMessage.getDecodeNanos())));
+            }
+            this.complete(header.getRequestId(), rpcResponse, null);
+        }
+    }
+
+    /**
+     * 连接断开，该连接上等待的请求全部失败
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        ClosedChannelException cause = new ClosedChannelException();
+        for (Long requestId : this.pendingRequests.keySet()) {
+            this.complete(requestId, null, cause);
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        ctx.close();
+    }
+}
@@ -0,0 +1,177 @@
+package com.lzy.rpc.consumer.client;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.bean.ServiceInfo;
+import com.lzy.rpc.compress.CompressorFactory;
+import com.lzy.rpc.config.ClientConfig;
+import com.lzy.rpc.protocol.MessageType;
+import com.lzy.rpc.protocol.ProtocolDecoder;
+import com.lzy.rpc.protocol.ProtocolEncoder;
+import com.lzy.rpc.protocol.ProtocolMessage;
+import com.lzy.rpc.provider.registry.Registry;
+import com.lzy.rpc.trace.CallTrace;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于自定义协议的客户端
+ * 所有连接共享一个事件循环组，每个服务节点维持一个连接池，
+ * 请求以流水线方式写入连接，无需等待上一个请求的响应，通过请求id匹配响应
+ */
+public class NettyRpcClient {
+
+    private static final ClientConfig clientConfig = RpcApplication.rpcConfig == null
+            ? new ClientConfig() : RpcApplication.rpcConfig.getClient();
+
+    /**
+     * 所有连接共享的事件循环组（守护线程，不阻止进程退出）
+     */
+    private static final EventLoopGroup group = new NioEventLoopGroup(clientConfig.getIoThreads(),
+            new DefaultThreadFactory("rpc-client", true));
+
+    /**
+     * 请求超时检测，时间轮适合大量短时定时任务
+     */
+    private static final Timer timer = new HashedWheelTimer(new DefaultThreadFactory("rpc-client-timer", true),
+            10, TimeUnit.MILLISECONDS);
+
+    private static final Bootstrap bootstrap = new Bootstrap()
+            .group(group)
+            .channel(NioSocketChannel.class)
+            .option(ChannelOption.TCP_NODELAY, true)
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, clientConfig.getConnectTimeout())
+            .handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) throws Exception {
+                    ChannelPipeline pipeline = ch.pipeline();
+                    /* 合并并发请求的flush，减少系统调用 */
+                    pipeline.addLast(new FlushConsolidationHandler(256, true));
+                    pipeline.addLast(new ProtocolDecoder());
+                    pipeline.addLast(new ProtocolEncoder(CompressorFactory.getCompressor(clientConfig.getCompressor()),
+                            clientConfig.getCompressThreshold()));
+                    if (clientConfig.getBatch()) {
+                        pipeline.addLast(new RequestBatcher(clientConfig.getBatchSize(), clientConfig.getBatchWindow()));
+                    }
+                    pipeline.addLast(new NettyClientHandler());
+                }
+            });
+
+    /**
+     * 连接池，结构为：服务节点地址:连接池
+     */
+    private static final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+    static {
+        /* 节点下线时关闭到该节点的连接池 */
+        Registry.addOfflineListener(NettyRpcClient::close);
+    }
+
+    /**
+     * 请求id生成器
+     */
+    private static final AtomicLong requestIdGenerator = new AtomicLong(0);
+
+    /**
+     * 向指定节点发送请求，使用配置的请求超时时间
+     */
+    public static CompletableFuture<RpcResponse> send(ServiceInfo serviceInfo, RpcRequest rpcRequest) {
+        return NettyRpcClient.send(serviceInfo, rpcRequest, clientConfig.getTimeout());
+    }
+
+    /**
+     * 向指定节点发送请求
+     *
+     * @param serviceInfo 服务节点
+     * @param rpcRequest  请求
+     * @param timeout     超时时间（单位毫秒）
+     * @return 收到响应时完成的future，超时或连接断开时异常完成，取消该future即放弃等待响应
+     */
+    public static CompletableFuture<RpcResponse> send(ServiceInfo serviceInfo, RpcRequest rpcRequest, long timeout) {
+        return NettyRpcClient.send(serviceInfo, rpcRequest, timeout, null);
+    }
+
+    /**
+     * 向指定节点发送请求，并记录序列化请求的耗时
+     *
+     * @param attempt 记录阶段耗时，未采样时为null
+     */
+    public static CompletableFuture<RpcResponse> send(ServiceInfo serviceInfo, RpcRequest rpcRequest, long timeout,
+                                                      CallTrace.Attempt attempt) {
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setSerializer(RpcApplication.serializer.getId());
+        header.setType(MessageType.REQUEST);
+        header.setRequestId(requestIdGenerator.incrementAndGet());
+        ProtocolMessage<RpcRequest> message = new ProtocolMessage<>(header, rpcRequest);
+
+        ConnectionPool pool = pools.computeIfAbsent(serviceInfo.getAddress(),
+                key -> new ConnectionPool(bootstrap, serviceInfo, clientConfig.getConnections()));
+        pool.acquire().addListener(connect -> {
+            if (!connect.isSuccess()) {
+                future.completeExceptionally(connect.cause());
+                return;
+            }
+            /* 等待连接期间请求已被取消 */
+            if (future.isDone()) {
+                return;
+            }
+            Channel channel = ((ChannelFuture) connect).channel();
+            NettyClientHandler handler = channel.pipeline().get(NettyClientHandler.class);
+            if (handler == null) {
+                future.completeExceptionally(new IllegalStateException("channel closed: " + serviceInfo.getAddress()));
+                return;
+            }
+            long requestId = header.getRequestId();
+            handler.addPendingRequest(requestId, future);
+            Timeout timeoutTask = timer.newTimeout(task -> handler.complete(requestId, null,
+                    new TimeoutException("request " + requestId + " to " + serviceInfo.getAddress() + " timed out after " + timeout + "ms")),
+                    timeout, TimeUnit.MILLISECONDS);
+            /* 请求被调用方取消时不再等待其响应 */
+            future.whenComplete((rpcResponse, cause) -> {
+                timeoutTask.cancel();
+                handler.removePendingRequest(requestId);
+            });
+            channel.writeAndFlush(message).addListener(write -> {
+                if (!write.isSuccess()) {
+                    handler.complete(requestId, null, write.cause());
+                } else if (attempt != null) {
+                    attempt.setEncodeNanos(message.getEncodeNanos());
+                }
+            });
+        });
+        return future;
+    }
+
+    /**
+     * 关闭到指定节点的所有连接（节点下线时调用）
+     */
+    public static void close(String address) {
+        ConnectionPool pool = pools.remove(address);
+        if (pool != null) {
+            pool.close();
+        }
+    }
+}
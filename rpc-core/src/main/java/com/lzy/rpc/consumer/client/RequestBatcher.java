@@ -0,0 +1,141 @@
+package com.lzy.rpc.consumer.client;
+
+import com.lzy.rpc.protocol.MessageType;
+import com.lzy.rpc.protocol.ProtocolMessage;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求批量发送处理器，每个连接一个实例，位于编码器之前
+ * 将窗口期内写入的请求暂存，达到批量上限或窗口到期时合并为一个批量请求帧写出，
+ * 以少量延迟换取更少的帧数和系统调用，适合大量小请求的场景
+ * 所有方法都在连接的事件循环线程中执行，无需同步
+ */
+public class RequestBatcher extends ChannelOutboundHandlerAdapter {
+
+    /**
+     * 单个批量帧最多包含的请求数
+     */
+    private final int batchSize;
+
+    /**
+     * 等待窗口（单位微秒）
+     */
+    private final long batchWindow;
+
+    /**
+     * 暂存的请求及其写入结果
+     */
+    private final List<ProtocolMessage<?>> messages = new ArrayList<>();
+
+    private final List<ChannelPromise> promises = new ArrayList<>();
+
+    /**
+     * 窗口到期的发送任务
+     */
+    private ScheduledFuture<?> flushTask;
+
+    public RequestBatcher(int batchSize, long batchWindow) {
+        this.batchSize = Math.max(batchSize, 1);
+        this.batchWindow = Math.max(batchWindow, 0);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!(msg instanceof ProtocolMessage) || ((ProtocolMessage<?>) msg).getHeader().getType() != MessageType.REQUEST) {
+            /* 其他消息先发送已暂存的请求，保持写入顺序 */
+            this.writeBatch(ctx);
+            ctx.write(msg, promise);
+            return;
+        }
+        this.messages.add((ProtocolMessage<?>) msg);
+        this.promises.add(promise);
+        if (this.messages.size() >= this.batchSize) {
+            this.writeBatch(ctx);
+            ctx.flush();
+        }
+    }
+
+    /**
+     * 有暂存请求时延迟到窗口到期再flush，让后续请求合并进同一批
+     */
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (this.messages.isEmpty()) {
+            ctx.flush();
+            return;
+        }
+        if (this.flushTask == null) {
+            this.flushTask = ctx.executor().schedule(() -> {
+                this.flushTask = null;
+                this.writeBatch(ctx);
+                ctx.flush();
+            }, this.batchWindow, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        this.failAll(new ClosedChannelException());
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        this.failAll(new ClosedChannelException());
+    }
+
+    /**
+     * 写出暂存的请求，只有一个请求时按普通请求发送
+     */
+    private void writeBatch(ChannelHandlerContext ctx) {
+        if (this.flushTask != null) {
+            this.flushTask.cancel(false);
+            this.flushTask = null;
+        }
+        if (this.messages.isEmpty()) {
+            return;
+        }
+        if (this.messages.size() == 1) {
+            ctx.write(this.messages.get(0), this.promises.get(0));
+        } else {
+            /* 批量帧沿用首个请求的消息头信息，客户端仍按各内部请求的id匹配响应 */
+            ProtocolMessage.Header first = this.messages.get(0).getHeader();
+            ProtocolMessage.Header header = new ProtocolMessage.Header();
+            header.setSerializer(first.getSerializer());
+            header.setType(MessageType.BATCH_REQUEST);
+            header.setRequestId(first.getRequestId());
+            List<ChannelPromise> batchPromises = new ArrayList<>(this.promises);
+            ctx.write(new ProtocolMessage<>(header, new ArrayList<>(this.messages))).addListener(write -> {
+                for (ChannelPromise promise : batchPromises) {
+                    if (write.isSuccess()) {
+                        promise.trySuccess();
+                    } else {
+                        promise.tryFailure(write.cause());
+                    }
+                }
+            });
+        }
+        this.messages.clear();
+        this.promises.clear();
+    }
+
+    private void failAll(Throwable cause) {
+        if (this.flushTask != null) {
+            this.flushTask.cancel(false);
+            this.flushTask = null;
+        }
+        for (ChannelPromise promise : this.promises) {
+            promise.tryFailure(cause);
+        }
+        this.messages.clear();
+        this.promises.clear();
+    }
+}
@@ -0,0 +1,161 @@
+package com.lzy.rpc.consumer.hedge;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.anno.Hedged;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.config.ClientConfig;
+import com.lzy.rpc.consumer.retry.RetryBudget;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 对冲请求，每个标注了{@link Hedged}的方法一个实例
+ * 首次请求超过等待时长仍未响应时发送一个备份请求，取先成功的结果并取消另一个请求；
+ * 所有方法共享一个对冲预算，备份请求数不超过请求数的一定比例，避免节点整体变慢时对冲使负载翻倍
+ */
+public class Hedger {
+
+    private static final ClientConfig clientConfig = RpcApplication.rpcConfig == null
+            ? new ClientConfig() : RpcApplication.rpcConfig.getClient();
+
+    /**
+     * 发送备份请求使用的定时器
+     */
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("rpc-hedge", true));
+
+    /**
+     * 所有方法共享的对冲预算
+     */
+    private static final RetryBudget budget = new RetryBudget(clientConfig.getHedgeBudgetRatio(),
+            clientConfig.getHedgeBudgetCapacity());
+
+    /**
+     * 方法与对冲实例的映射，未开启对冲的方法对应空值
+     */
+    private static final Map<Method, Optional<Hedger>> hedgers = new ConcurrentHashMap<>();
+
+    /**
+     * 固定的等待时长（单位微秒），不大于0时使用观测到的响应时间百分位
+     */
+    private final long delay;
+
+    private final LatencyRecorder recorder;
+
+    private Hedger(Hedged hedged) {
+        this.delay = TimeUnit.MILLISECONDS.toMicros(hedged.delay());
+        this.recorder = new LatencyRecorder(hedged.percentile());
+    }
+
+    /**
+     * 获取方法的对冲实例，方法上的注解优先于接口上的注解
+     *
+     * @return 方法未开启对冲时返回null
+     */
+    public static Hedger of(Method method) {
+        return hedgers.computeIfAbsent(method, key -> {
+            Hedged hedged = key.getAnnotation(Hedged.class);
+            if (hedged == null) {
+                hedged = key.getDeclaringClass().getAnnotation(Hedged.class);
+            }
+            return hedged == null ? Optional.empty() : Optional.of(new Hedger(hedged));
+        }).orElse(null);
+    }
+
+    /**
+     * 发送请求，超过等待时长未响应时发送备份请求
+     *
+     * @param primary 发送首次请求
+     * @param backup  向另一个节点发送备份请求，没有其他可用节点时返回null
+     * @return 任一请求成功时完成的future，所有已发送的请求都失败时异常完成
+     */
+    public CompletableFuture<RpcResponse> send(Supplier<CompletableFuture<RpcResponse>> primary,
+                                               Supplier<CompletableFuture<RpcResponse>> backup) {
+        budget.deposit();
+        CompletableFuture<RpcResponse> first = this.timed(primary);
+        long delay = this.delay();
+        if (delay <= 0) {
+            return first;
+        }
+        CompletableFuture<RpcResponse> result = new CompletableFuture<>();
+        /* 尚未结束的请求数，全部失败时以最后一个失败结束 */
+        AtomicInteger outstanding = new AtomicInteger(1);
+        this.race(first, result, outstanding);
+        ScheduledFuture<?> task = scheduler.schedule(() -> {
+            if (result.isDone() || !budget.tryWithdraw()) {
+                return;
+            }
+            outstanding.incrementAndGet();
+            CompletableFuture<RpcResponse> second;
+            try {
+                second = this.timed(backup);
+            } catch (Exception e) {
+                second = null;
+            }
+            if (second == null) {
+                outstanding.decrementAndGet();
+                return;
+            }
+            this.race(second, result, outstanding);
+        }, delay, TimeUnit.MICROSECONDS);
+        result.whenComplete((rpcResponse, e) -> task.cancel(false));
+        return result;
+    }
+
+    /**
+     * 请求成功时完成结果并取消其他请求
+     */
+    private void race(CompletableFuture<RpcResponse> attempt, CompletableFuture<RpcResponse> result, AtomicInteger outstanding) {
+        attempt.whenComplete((rpcResponse, e) -> {
+            if (e == null) {
+                result.complete(rpcResponse);
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        });
+        /* 结果已确定时取消该请求，已完成的请求不受影响 */
+        result.whenComplete((rpcResponse, e) -> attempt.cancel(false));
+    }
+
+    /**
+     * 发送请求并记录响应时间，被取消的请求按取消时已等待的时长记录，否则慢请求被对冲取消后不会计入统计
+     */
+    private CompletableFuture<RpcResponse> timed(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        long startTime = System.nanoTime();
+        CompletableFuture<RpcResponse> future = supplier.get();
+        if (future != null) {
+            future.whenComplete((rpcResponse, e) -> {
+                if (e == null || future.isCancelled()) {
+                    this.recorder.record(System.nanoTime() - startTime);
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * 当前的等待时长（单位微秒），样本不足时返回-1表示不对冲
+     */
+    private long delay() {
+        if (this.delay > 0) {
+            return this.delay;
+        }
+        long percentile = this.recorder.value();
+        if (percentile < 0) {
+            return -1;
+        }
+        return Math.max(TimeUnit.NANOSECONDS.toMicros(percentile),
+                TimeUnit.MILLISECONDS.toMicros(clientConfig.getHedgeMinDelay()));
+    }
+}
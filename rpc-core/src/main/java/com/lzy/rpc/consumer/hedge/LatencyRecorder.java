@@ -0,0 +1,78 @@
+package com.lzy.rpc.consumer.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 响应时间百分位统计，保存最近的一批响应时间样本，每记录一定数量的样本重新计算一次百分位
+ */
+public class LatencyRecorder {
+
+    /**
+     * 保存的样本数
+     */
+    private static final int SIZE = 512;
+
+    /**
+     * 每记录这么多样本重新计算一次百分位
+     */
+    private static final int REFRESH = 64;
+
+    /**
+     * 样本数达到该值后才给出百分位，避免少量样本得到不可靠的结果
+     */
+    private static final int MIN_SAMPLES = 32;
+
+    /**
+     * 统计的百分位，取值(0, 100]
+     */
+    private final double percentile;
+
+    /**
+     * 环形缓冲区，单位纳秒
+     */
+    private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+
+    private final AtomicLong count = new AtomicLong(0);
+
+    /**
+     * 最近一次计算出的百分位（单位纳秒），样本不足时为-1
+     */
+    private volatile long value = -1;
+
+    public LatencyRecorder(double percentile) {
+        this.percentile = Math.min(Math.max(percentile, 1), 100);
+    }
+
+    /**
+     * 记录一次响应时间
+     *
+     * @param nanos 响应时间（单位纳秒）
+     */
+    public void record(long nanos) {
+        long n = this.count.getAndIncrement();
+        this.samples.set((int) (n % SIZE), nanos);
+        n++;
+        if (n == MIN_SAMPLES || (n > MIN_SAMPLES && n % REFRESH == 0)) {
+            this.refresh((int) Math.min(n, SIZE));
+        }
+    }
+
+    /**
+     * @return 响应时间百分位（单位纳秒），样本不足时返回-1
+     */
+    public long value() {
+        return this.value;
+    }
+
+    private void refresh(int length) {
+        long[] sorted = new long[length];
+        for (int i = 0; i < length; i++) {
+            sorted[i] = this.samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(this.percentile / 100 * length) - 1;
+        this.value = sorted[Math.max(index, 0)];
+    }
+}
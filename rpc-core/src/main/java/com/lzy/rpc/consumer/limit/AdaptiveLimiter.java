@@ -0,0 +1,177 @@
+package com.lzy.rpc.consumer.limit;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.config.ClientConfig;
+import com.lzy.rpc.provider.registry.Registry;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端自适应并发限制，每个服务在每个节点上一个实例，按TCP Vegas的思路根据响应时间调整并发上限：
+ * 以观测到的最小响应时间作为无排队时的响应时间，估算排队的请求数 = 上限 * (1 - 最小响应时间 / 当前响应时间)，
+ * 排队很少时增大上限，排队过多时减小上限，请求超时或服务端过载时直接减小上限
+ * 超出上限的请求不发送，以可重试的异常失败，由重试策略转到其他节点
+ */
+public class AdaptiveLimiter {
+
+    private static final ClientConfig clientConfig = RpcApplication.rpcConfig == null
+            ? new ClientConfig() : RpcApplication.rpcConfig.getClient();
+
+    private static final int MIN_LIMIT = 1;
+
+    /**
+     * 每处理 上限*该值 个样本重置一次最小响应时间，使其能跟随网络和服务端的变化升高
+     */
+    private static final int PROBE_FACTOR = 30;
+
+    /**
+     * 限制器，结构为：服务名称@节点地址:限制器
+     */
+    private static final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    static {
+        /* 节点下线时删除该节点上所有服务的限制器 */
+        Registry.addOfflineListener(AdaptiveLimiter::remove);
+    }
+
+    private final ClientConfig config;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    /**
+     * 当前的并发上限
+     */
+    private volatile int limit;
+
+    /**
+     * 并发上限的估计值，保留小数部分使上限可以平滑调整
+     */
+    private double estimatedLimit;
+
+    /**
+     * 无排队时的响应时间（单位纳秒），0表示尚无样本
+     */
+    private long noLoadRtt;
+
+    private long samples;
+
+    /**
+     * 下一次重置最小响应时间的样本数
+     */
+    private long nextProbe;
+
+    AdaptiveLimiter(ClientConfig config) {
+        this.config = config;
+        this.estimatedLimit = Math.max(config.getAdaptiveLimitInitial(), MIN_LIMIT);
+        this.limit = (int) this.estimatedLimit;
+        this.nextProbe = (long) PROBE_FACTOR * this.limit;
+    }
+
+    /**
+     * 获取服务在指定节点上的限制器，不存在时创建
+     */
+    public static AdaptiveLimiter get(String serviceName, String address) {
+        String key = serviceName + "@" + address;
+        AdaptiveLimiter limiter = limiters.get(key);
+        return limiter != null ? limiter : limiters.computeIfAbsent(key, k -> new AdaptiveLimiter(clientConfig));
+    }
+
+    /**
+     * 移除节点上所有服务的限制器（节点下线时调用）
+     */
+    public static void remove(String address) {
+        String suffix = "@" + address;
+        limiters.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
+    /**
+     * 当前所有限制器的并发上限，用于监控
+     *
+     * @return 结构为：服务名称@节点地址:并发上限
+     */
+    public static Map<String, Integer> limits() {
+        Map<String, Integer> result = new TreeMap<>();
+        for (Map.Entry<String, AdaptiveLimiter> entry : limiters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getLimit());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * 发送请求前获取许可
+     *
+     * @return 进行中的请求数未达到上限时返回true，之后必须调用release
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = this.inflight.get();
+            if (current >= this.limit) {
+                return false;
+            }
+        } while (!this.inflight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * 请求结束，按响应时间调整上限
+     *
+     * @param rtt     响应时间（单位纳秒）
+     * @param dropped 是否超时或被服务端拒绝
+     */
+    public void release(long rtt, boolean dropped) {
+        int current = this.inflight.getAndDecrement();
+        this.update(rtt, current, dropped);
+    }
+
+    /**
+     * 请求被取消，不作为调整上限的样本
+     */
+    public void release() {
+        this.inflight.decrementAndGet();
+    }
+
+    private synchronized void update(long rtt, int inflight, boolean dropped) {
+        this.samples++;
+        if (this.samples >= this.nextProbe) {
+            this.noLoadRtt = 0;
+            this.nextProbe = this.samples + (long) PROBE_FACTOR * this.limit;
+        }
+        if (!dropped && rtt > 0 && (this.noLoadRtt == 0 || rtt < this.noLoadRtt)) {
+            this.noLoadRtt = rtt;
+        }
+        double limit = this.estimatedLimit;
+        double step = Math.max(1, Math.log10(limit));
+        if (dropped) {
+            limit -= step;
+        } else if (inflight * 2 < limit || this.noLoadRtt == 0) {
+            /* 进行中的请求远少于上限时，响应时间不能说明上限是否合适 */
+            return;
+        } else {
+            double queue = Math.ceil(limit * (1 - (double) this.noLoadRtt / rtt));
+            if (queue <= step) {
+                limit += 6 * step;
+            } else if (queue < 3 * step) {
+                limit += step;
+            } else if (queue > 6 * step) {
+                limit -= step;
+            } else {
+                return;
+            }
+        }
+        this.estimatedLimit = Math.min(Math.max(limit, MIN_LIMIT), this.config.getAdaptiveLimitMax());
+        this.limit = (int) this.estimatedLimit;
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+
+    public int getInflight() {
+        return this.inflight.get();
+    }
+}
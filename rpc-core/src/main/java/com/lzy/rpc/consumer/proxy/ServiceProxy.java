@@ -1,26 +1,40 @@
 package com.lzy.rpc.consumer.proxy;
 
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
 import com.lzy.rpc.RpcApplication;
 import com.lzy.rpc.bean.RpcRequest;
 import com.lzy.rpc.bean.RpcResponse;
 import com.lzy.rpc.bean.ServiceInfo;
-import com.lzy.rpc.util.JdkSerializer;
-import com.lzy.rpc.util.Serializer;
+import com.lzy.rpc.config.ClientConfig;
+import com.lzy.rpc.consumer.breaker.CircuitBreaker;
+import com.lzy.rpc.consumer.breaker.NodeEjector;
+import com.lzy.rpc.consumer.client.NettyRpcClient;
+import com.lzy.rpc.consumer.hedge.Hedger;
+import com.lzy.rpc.consumer.limit.AdaptiveLimiter;
+import com.lzy.rpc.context.RpcContext;
+import com.lzy.rpc.exception.RpcException;
+import com.lzy.rpc.loadbalancer.NodeStats;
+import com.lzy.rpc.metrics.MethodMetrics;
+import com.lzy.rpc.metrics.MetricsRegistry;
+import com.lzy.rpc.trace.CallTrace;
 
-import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class ServiceProxy implements InvocationHandler {
 
-    private static final Serializer serializer = new JdkSerializer();
+    /**
+     * 重试时选中已请求过的节点后，在完整列表上重新选择的次数
+     */
+    private static final int RESELECT_TIMES = 2;
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
@@ -32,40 +46,264 @@ public class ServiceProxy implements InvocationHandler {
         rpcRequest.setMethodName(method.getName());
         rpcRequest.setParameterTypes(method.getParameterTypes());
         rpcRequest.setArgs(args);
-        Set<String> urls = new HashSet<>();
+        /* 截止时间取配置的超时时间和上游调用剩余时间中较早的一个，重试、对冲和故障转移都不会超过该时间 */
+        long deadline = System.currentTimeMillis() + Timeouts.of(serviceName, method.getName());
+        long inherited = RpcContext.getDeadline();
+        RpcContext.setDeadline(rpcRequest, inherited > 0 ? Math.min(inherited, deadline) : deadline);
+        /* 异步调用时可能在不同线程记录，使用并发集合 */
+        Set<String> urls = ConcurrentHashMap.newKeySet();
+        /* 标注了@Hedged的方法使用对冲请求 */
+        Hedger hedger = Hedger.of(method);
+        /* 按采样率记录各阶段耗时，未采样时为null */
+        CallTrace trace = CallTrace.sample(rpcRequest);
+        /* 统计一次调用（包括重试和对冲）的结果和耗时，容错策略的处理不计入 */
+        MethodMetrics metrics = MetricsRegistry.CLIENT.get(serviceName, method.getName());
+        long startTime = metrics.begin();
+        /* 返回值为CompletableFuture的方法按异步方式调用，不阻塞调用线程 */
+        if(method.getReturnType()==CompletableFuture.class){
+            return ServiceProxy.invokeAsync(rpcRequest, urls, hedger, trace, metrics, startTime);
+        }
         try {
-            RpcResponse rpcResponse = RpcApplication.retry.doRetry(new Callable<RpcResponse>() {
-                @Override
-                public RpcResponse call() throws Exception {
-                    System.out.println("try!!!");
-                    /* 获取服务url */
-                    String url = RpcApplication.rpcConfig.getClient().getAddress();
-                    if(RpcApplication.registry!=null){
-                        List<ServiceInfo> services = RpcApplication.registry.serviceDiscovery(RpcApplication.rpcConfig.getClient().getServiceName());
-                        /**
-                         * 使用选定的负载均衡策略选择服务
-                         */
-                        if(services!=null&&!services.isEmpty()){
-                            url = RpcApplication.loadBalancer.select(services).getAddress();
+            RpcResponse rpcResponse;
+            try {
+                rpcResponse = RpcApplication.retry.doRetry(new Callable<RpcResponse>() {
+                    @Override
+                    public RpcResponse call() throws Exception {
+                        try {
+                            return ServiceProxy.sendRequest(rpcRequest, urls, hedger, trace).get();
+                        } catch (ExecutionException e) {
+                            throw ServiceProxy.unwrap(e);
                         }
                     }
-                    //System.out.println(url);
-                    /* 记录请求过的url */
-                    urls.add(url);
-                    /* 序列化 */
-                    byte[] data = serializer.serialize(rpcRequest);
-                    /* 发送请求 */
-                    HttpResponse httpResponse = HttpRequest.post(url)
-                            .body(data)
-                            .execute();
-                    byte[] result = httpResponse.bodyBytes();
-                    /* 反序列化 */
-                    return serializer.deserialize(result, RpcResponse.class);
-                }
-            });
+                });
+            } catch (Exception e) {
+                CallTrace.finish(trace, rpcRequest, metrics.end(startTime, true), urls, e);
+                throw e;
+            }
+            CallTrace.finish(trace, rpcRequest, metrics.end(startTime, false), urls, null);
             return rpcResponse.getData();
         } catch (Exception e) {
-            return RpcApplication.tolerant.tolerant(new ArrayList<>(urls),e);
+            RpcResponse rpcResponse = RpcApplication.tolerant.tolerant(rpcRequest, urls, e);
+            return rpcResponse == null ? null : rpcResponse.getData();
+        }
+    }
+
+    /**
+     * 异步调用，重试和容错均以future组合的方式进行
+     */
+    private static CompletableFuture<Object> invokeAsync(RpcRequest rpcRequest, Set<String> urls, Hedger hedger,
+                                                        CallTrace trace, MethodMetrics metrics, long startTime) {
+        return RpcApplication.retry.doRetryAsync(() -> ServiceProxy.sendRequest(rpcRequest, urls, hedger, trace))
+                .whenComplete((rpcResponse, e) -> CallTrace.finish(trace, rpcRequest, metrics.end(startTime, e != null),
+                        urls, e == null ? null : ServiceProxy.unwrap(e)))
+                .handle((rpcResponse, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(rpcResponse);
+                    }
+                    return RpcApplication.tolerant.tolerantAsync(rpcRequest, urls, ServiceProxy.unwrap(e));
+                })
+                .thenCompose(future -> future)
+                .thenApply(rpcResponse -> rpcResponse == null ? null : rpcResponse.getData());
+    }
+
+    /**
+     * 发送一次请求，开启对冲时超过等待时长未响应会向另一个节点发送备份请求
+     *
+     * @param rpcRequest 请求
+     * @param urls       记录请求过的节点地址
+     * @param hedger     对冲实例，未开启对冲时为null
+     * @param trace      阶段耗时，未采样时为null
+     * @return 收到响应时完成的future，服务端方法抛出异常时异常完成
+     */
+    private static CompletableFuture<RpcResponse> sendRequest(RpcRequest rpcRequest, Set<String> urls, Hedger hedger, CallTrace trace) {
+        if(hedger==null){
+            return ServiceProxy.sendRequest(rpcRequest, urls, trace);
+        }
+        /* 备份请求只发往未请求过的节点 */
+        return hedger.send(() -> ServiceProxy.sendRequest(rpcRequest, urls, trace),
+                () -> ServiceProxy.sendToUntried(rpcRequest, urls, trace));
+    }
+
+    /**
+     * 向未请求过的节点发送一次请求，供对冲和容错策略使用
+     *
+     * @param rpcRequest 请求
+     * @param urls       记录请求过的节点地址
+     * @return 收到响应时完成的future，没有未请求过的可用节点时返回null
+     */
+    public static CompletableFuture<RpcResponse> sendToUntried(RpcRequest rpcRequest, Set<String> urls) {
+        return ServiceProxy.sendToUntried(rpcRequest, urls, null);
+    }
+
+    private static CompletableFuture<RpcResponse> sendToUntried(RpcRequest rpcRequest, Set<String> urls, CallTrace trace) {
+        ServiceInfo serviceInfo;
+        try {
+            serviceInfo = ServiceProxy.selectNode(rpcRequest, urls, trace);
+        } catch (Exception e) {
+            return null;
+        }
+        return urls.contains(serviceInfo.getAddress()) ? null : ServiceProxy.send(serviceInfo, rpcRequest, urls, trace);
+    }
+
+    /**
+     * 选择服务节点并发送一次请求
+     */
+    private static CompletableFuture<RpcResponse> sendRequest(RpcRequest rpcRequest, Set<String> urls, CallTrace trace) {
+        try {
+            return ServiceProxy.send(ServiceProxy.selectNode(rpcRequest, urls, trace), rpcRequest, urls, trace);
+        } catch (Exception e) {
+            return ServiceProxy.failed(e);
+        }
+    }
+
+    /**
+     * 获取服务节点，未启用注册中心时直连配置的服务端
+     */
+    private static ServiceInfo selectNode(RpcRequest rpcRequest, Set<String> urls, CallTrace trace) {
+        ClientConfig clientConfig = RpcApplication.rpcConfig.getClient();
+        ServiceInfo serviceInfo = null;
+        if(RpcApplication.registry!=null){
+            long startTime = trace == null ? 0 : System.nanoTime();
+            List<ServiceInfo> services = RpcApplication.registry.serviceDiscovery(clientConfig.getServiceName());
+            /**
+             * 剔除熔断器打开的节点后，使用选定的负载均衡策略选择服务
+             */
+            if(services!=null&&!services.isEmpty()){
+                long selectTime = trace == null ? 0 : System.nanoTime();
+                if(trace!=null){
+                    trace.record("discovery", selectTime - startTime);
+                }
+                List<ServiceInfo> available = NodeEjector.filter(clientConfig.getServiceName(), services);
+                if(available.isEmpty()){
+                    throw new RpcException("no available node of " + clientConfig.getServiceName() + ", all circuit breakers are open", false);
+                }
+                serviceInfo = ServiceProxy.select(rpcRequest, available, urls);
+                if(trace!=null){
+                    trace.record("loadBalance", System.nanoTime() - selectTime);
+                }
+            }
+        }
+        if(serviceInfo==null){
+            serviceInfo = new ServiceInfo();
+            serviceInfo.setServiceName(clientConfig.getServiceName());
+            serviceInfo.setServiceHost(clientConfig.getServerHost());
+            serviceInfo.setServicePort(clientConfig.getServerPort());
+        }
+        return serviceInfo;
+    }
+
+    /**
+     * 向指定节点发送一次请求
+     *
+     * @return 收到响应时完成的future，服务端方法抛出异常时异常完成，取消该future即放弃等待响应
+     */
+    private static CompletableFuture<RpcResponse> send(ServiceInfo serviceInfo, RpcRequest rpcRequest, Set<String> urls, CallTrace trace) {
+        /* 超时时间为距截止时间的剩余时间，已经超过截止时间时不再发送 */
+        ClientConfig clientConfig = RpcApplication.rpcConfig.getClient();
+        String address = serviceInfo.getAddress();
+        long deadline = RpcContext.getDeadline(rpcRequest);
+        long timeout = deadline == 0 ? clientConfig.getTimeout() : deadline - System.currentTimeMillis();
+        if(timeout<=0){
+            return ServiceProxy.failed(new RpcException("deadline exceeded before calling " + address, false));
+        }
+        /* 超出自适应并发上限时不发送，由重试策略转到其他节点 */
+        AdaptiveLimiter limiter = clientConfig.getAdaptiveLimit() ? AdaptiveLimiter.get(rpcRequest.getServiceName(), address) : null;
+        if(limiter!=null&&!limiter.tryAcquire()){
+            return ServiceProxy.failed(new RpcException("concurrency limit " + limiter.getLimit() + " of " + address + " exceeded", true));
+        }
+        /* 熔断器打开时不发送，快速失败 */
+        CircuitBreaker breaker = CircuitBreaker.get(address);
+        if(!breaker.tryAcquire()){
+            if(limiter!=null){
+                limiter.release();
+            }
+            return ServiceProxy.failed(new RpcException("circuit breaker of " + address + " is open", false));
+        }
+        /* 记录请求过的url */
+        urls.add(address);
+        /* 记录节点的活跃请求数和响应时间，供负载均衡使用 */
+        NodeStats stats = NodeStats.get(address);
+        long startTime = stats.begin();
+        /* 发送请求，长连接复用，在IO线程上完成future */
+        CallTrace.Attempt attempt = trace == null ? null : trace.attempt(address);
+        CompletableFuture<RpcResponse> sent = NettyRpcClient.send(serviceInfo, rpcRequest, timeout, attempt);
+        CompletableFuture<RpcResponse> result = sent
+                .whenComplete((rpcResponse, e) -> {
+                    if(attempt!=null){
+                        attempt.end(rpcResponse, e);
+                    }
+                    stats.end(startTime);
+                    long rtt = System.nanoTime() - startTime;
+                    /* 被取消的请求（如对冲中落败的请求）没有结果，不计入熔断器和并发上限的统计，只归还许可 */
+                    if(sent.isCancelled()){
+                        breaker.release();
+                        if(limiter!=null){
+                            limiter.release();
+                        }
+                        return;
+                    }
+                    /* 传输层失败和服务端过载（以响应状态区分，客户端收到时异常完成）计入熔断器的失败，服务方法抛出的异常不计入 */
+                    boolean failure = e != null;
+                    breaker.record(rtt, failure);
+                    if(limiter!=null){
+                        limiter.release(rtt, failure);
+                    }
+                })
+                .handle((rpcResponse, e) -> {
+                    /* 连接失败、超时等传输层失败，请求可能未到达服务端，可以重试 */
+                    if(e!=null){
+                        Exception cause = ServiceProxy.unwrap(e);
+                        throw new CompletionException(new RpcException("call " + address + " failed: " + cause, cause, true));
+                    }
+                    /* 服务端方法抛出的异常交由重试和容错机制处理 */
+                    if(rpcResponse.getException()!=null){
+                        throw new CompletionException(rpcResponse.getException());
+                    }
+                    return rpcResponse;
+                });
+        /* 调用方取消时同时取消底层请求，不再等待其响应 */
+        result.whenComplete((rpcResponse, e) -> sent.cancel(false));
+        return result;
+    }
+
+    private static CompletableFuture<RpcResponse> failed(Exception e) {
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * 使用选定的负载均衡策略选择服务节点，重试时尽量避开已请求过的节点
+     * 先在完整列表上重新选择，以复用负载均衡器按列表缓存的选择结构，仍选中已请求过的节点时从未请求过的节点中随机选择
+     */
+    private static ServiceInfo select(RpcRequest rpcRequest, List<ServiceInfo> services, Set<String> urls) {
+        ServiceInfo serviceInfo = RpcApplication.loadBalancer.select(rpcRequest, services);
+        if(urls.isEmpty()||!urls.contains(serviceInfo.getAddress())){
+            return serviceInfo;
+        }
+        for(int i = 0;i<RESELECT_TIMES;i++){
+            ServiceInfo reselected = RpcApplication.loadBalancer.select(rpcRequest, services);
+            if(!urls.contains(reselected.getAddress())){
+                return reselected;
+            }
+        }
+        List<ServiceInfo> untried = new ArrayList<>();
+        for(ServiceInfo service : services){
+            if(!urls.contains(service.getAddress())){
+                untried.add(service);
+            }
+        }
+        /* 所有节点都已请求过，按负载均衡的选择结果再次请求 */
+        return untried.isEmpty() ? serviceInfo : untried.get(ThreadLocalRandom.current().nextInt(untried.size()));
+    }
+
+    /**
+     * 取出future包装的原始异常
+     */
+    public static Exception unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
         }
+        return e instanceof Exception ? (Exception) e : new RuntimeException(e);
     }
 }
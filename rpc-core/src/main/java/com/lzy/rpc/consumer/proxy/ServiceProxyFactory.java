@@ -15,9 +15,9 @@ public class ServiceProxyFactory {
      * @return
      */
     public static <T> T getProxy(Class<T> serviceClass) {
-        return (T) Proxy.newProxyInstance(
+        return serviceClass.cast(Proxy.newProxyInstance(
                 serviceClass.getClassLoader(),
                 new Class[]{serviceClass},
-                new ServiceProxy());
+                new ServiceProxy()));
     }
 }
@@ -0,0 +1,73 @@
+package com.lzy.rpc.consumer.proxy;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.config.ClientConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按服务和方法解析的请求超时时间，启动时解析一次配置
+ */
+public class Timeouts {
+
+    private static final ClientConfig clientConfig = RpcApplication.rpcConfig == null
+            ? new ClientConfig() : RpcApplication.rpcConfig.getClient();
+
+    /**
+     * 超时时间配置，结构为：接口名或接口名.方法名:超时时间（单位毫秒）
+     */
+    private static final Map<String, Long> timeouts = Timeouts.parse(clientConfig.getTimeouts());
+
+    /**
+     * 获取方法的请求超时时间，方法的配置优先于服务的配置，都未配置时使用默认超时时间
+     *
+     * @param serviceName 接口名
+     * @param methodName  方法名
+     * @return 超时时间（单位毫秒）
+     */
+    public static long of(String serviceName, String methodName) {
+        if (timeouts.isEmpty()) {
+            return clientConfig.getTimeout();
+        }
+        Long timeout = timeouts.get(serviceName + "." + methodName);
+        if (timeout == null) {
+            timeout = timeouts.get(serviceName);
+        }
+        return timeout == null ? clientConfig.getTimeout() : timeout;
+    }
+
+    /**
+     * 解析超时时间配置，由RpcApplication.init在启动时调用以提前发现配置错误
+     *
+     * @param config 格式为 接口名=超时时间,接口名.方法名=超时时间
+     * @throws IllegalArgumentException 配置项缺少名称或超时时间不是正整数时抛出，异常信息中包含出错的配置项
+     */
+    public static Map<String, Long> parse(String config) {
+        Map<String, Long> result = new HashMap<>();
+        if (config == null) {
+            return result;
+        }
+        for (String entry : config.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int index = entry.indexOf('=');
+            String key = index < 0 ? entry.trim() : entry.substring(0, index).trim();
+            long timeout = 0;
+            if (index > 0 && !key.isEmpty()) {
+                try {
+                    timeout = Long.parseLong(entry.substring(index + 1).trim());
+                } catch (NumberFormatException e) {
+                    /* 按非法值处理 */
+                }
+            }
+            if (key.isEmpty() || timeout <= 0) {
+                throw new IllegalArgumentException("invalid rpc.client.timeouts entry '" + entry.trim() + "' of '" + key
+                        + "', expected <interface>[.<method>]=<positive milliseconds>");
+            }
+            result.put(key, timeout);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+package com.lzy.rpc.consumer.retry;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.config.ClientConfig;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 指数退避重试
+ * 第n次重试前等待 [0, min(最大间隔, 基础间隔*2^n)) 内的随机时长（full jitter），
+ * 避免大量客户端在同一时刻集中重试；只重试可重试的失败，且受全局重试预算限制
+ */
+public class ExponentialBackoffRetry implements Retry {
+
+    /**
+     * 异步重试使用的定时器
+     */
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("rpc-retry", true));
+
+    /**
+     * 最大尝试次数（含首次请求）
+     */
+    private final int maxAttempts;
+
+    /**
+     * 基础重试间隔（单位毫秒）
+     */
+    private final long baseDelay;
+
+    /**
+     * 最大重试间隔（单位毫秒）
+     */
+    private final long maxDelay;
+
+    /**
+     * 该客户端所有调用共享的重试预算
+     */
+    private final RetryBudget budget;
+
+    public ExponentialBackoffRetry() {
+        ClientConfig clientConfig = RpcApplication.rpcConfig == null
+                ? new ClientConfig() : RpcApplication.rpcConfig.getClient();
+        this.maxAttempts = Math.max(clientConfig.getRetryMaxAttempts(), 1);
+        this.baseDelay = clientConfig.getRetryBaseDelay();
+        this.maxDelay = clientConfig.getRetryMaxDelay();
+        this.budget = new RetryBudget(clientConfig.getRetryBudgetRatio(), clientConfig.getRetryBudgetCapacity());
+    }
+
+    @Override
+    public RpcResponse doRetry(Callable<RpcResponse> callable) throws Exception {
+        this.budget.deposit();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return callable.call();
+            } catch (Exception e) {
+                if (!this.shouldRetry(e, attempt)) {
+                    throw e;
+                }
+                Thread.sleep(this.backoff(attempt));
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        this.budget.deposit();
+        CompletableFuture<RpcResponse> result = new CompletableFuture<>();
+        this.attempt(supplier, 1, result);
+        return result;
+    }
+
+    /**
+     * 执行一次尝试，失败时通过定时器安排下一次尝试
+     */
+    private void attempt(Supplier<CompletableFuture<RpcResponse>> supplier, int attempt, CompletableFuture<RpcResponse> result) {
+        supplier.get().whenComplete((rpcResponse, e) -> {
+            if (e == null) {
+                result.complete(rpcResponse);
+            } else if (!this.shouldRetry(e, attempt)) {
+                result.completeExceptionally(e);
+            } else {
+                scheduler.schedule(() -> this.attempt(supplier, attempt + 1, result), this.backoff(attempt), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private boolean shouldRetry(Throwable e, int attempt) {
+        return attempt < this.maxAttempts && RetryClassifier.isRetriable(e) && this.budget.tryWithdraw();
+    }
+
+    /**
+     * 第attempt次失败后的等待时长
+     */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(this.maxDelay, this.baseDelay << Math.min(attempt - 1, 30));
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling);
+    }
+}
@@ -3,6 +3,8 @@ package com.lzy.rpc.consumer.retry;
 import com.lzy.rpc.bean.RpcResponse;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * 重试接口
@@ -10,4 +12,12 @@ import java.util.concurrent.Callable;
 public interface Retry {
 
     RpcResponse doRetry(Callable<RpcResponse> callable) throws Exception;
+
+    /**
+     * 异步重试，每次尝试返回一个future，重试通过future组合完成，不阻塞线程
+     * 默认不重试
+     */
+    default CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        return supplier.get();
+    }
 }
@@ -0,0 +1,66 @@
+package com.lzy.rpc.consumer.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重试预算（令牌桶），限制重试请求占正常请求的比例，防止故障期间重试放大流量形成重试风暴
+ * 每个请求向桶中存入ratio个令牌，每次重试取出一个令牌，令牌不足时放弃重试
+ */
+public class RetryBudget {
+
+    /**
+     * 令牌以千分之一为单位存储，避免浮点运算
+     */
+    private static final long UNIT = 1000;
+
+    /**
+     * 每个请求存入的令牌数（千分之一个）
+     */
+    private final long deposit;
+
+    /**
+     * 桶容量（千分之一个）
+     */
+    private final long capacity;
+
+    private final AtomicLong tokens;
+
+    /**
+     * @param ratio    重试占请求的最大比例
+     * @param capacity 桶容量，即流量很小时最多可连续重试的次数
+     */
+    public RetryBudget(double ratio, int capacity) {
+        this.deposit = (long) (ratio * UNIT);
+        this.capacity = capacity * UNIT;
+        this.tokens = new AtomicLong(this.capacity);
+    }
+
+    /**
+     * 记录一次请求
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = this.tokens.get();
+            if (current >= this.capacity) {
+                return;
+            }
+        } while (!this.tokens.compareAndSet(current, Math.min(current + this.deposit, this.capacity)));
+    }
+
+    /**
+     * 尝试取出一次重试的令牌
+     *
+     * @return 是否允许重试
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = this.tokens.get();
+            if (current < UNIT) {
+                return false;
+            }
+        } while (!this.tokens.compareAndSet(current, current - UNIT));
+        return true;
+    }
+}
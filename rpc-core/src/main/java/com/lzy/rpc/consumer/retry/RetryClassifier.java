@@ -0,0 +1,21 @@
+package com.lzy.rpc.consumer.retry;
+
+import com.lzy.rpc.exception.RpcException;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 按异常类型判断失败是否可以重试
+ * 只有框架层面标记为可重试的失败（连接失败、超时、服务端拒绝执行等）才重试，
+ * 服务方法抛出的业务异常重试也不会成功，不重试
+ */
+public class RetryClassifier {
+
+    public static boolean isRetriable(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e instanceof RpcException && ((RpcException) e).isRetriable();
+    }
+}
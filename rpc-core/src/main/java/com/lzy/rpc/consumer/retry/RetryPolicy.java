@@ -8,4 +8,6 @@ public class RetryPolicy {
     public static final String NO_RETRY = "no";
 
     public static final String SCHEDULED_RETRY = "scheduledRetry";
+
+    public static final String EXPONENTIAL_BACKOFF = "exponentialBackoff";
 }
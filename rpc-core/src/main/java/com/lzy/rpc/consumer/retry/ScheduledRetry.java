@@ -5,22 +5,66 @@ import com.github.rholder.retry.RetryerBuilder;
 import com.github.rholder.retry.StopStrategies;
 import com.github.rholder.retry.WaitStrategies;
 import com.lzy.rpc.bean.RpcResponse;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * 定时重试
  */
 public class ScheduledRetry implements Retry{
+
+    /**
+     * 重试间隔（单位毫秒）
+     */
+    private static final long WAIT_MILLIS = 2000L;
+
+    /**
+     * 最大尝试次数
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * 异步重试使用的定时器
+     */
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("rpc-retry", true));
+
     @Override
     public RpcResponse doRetry(Callable<RpcResponse> callable) throws Exception {
         Retryer<RpcResponse> retryer = RetryerBuilder.<RpcResponse>newBuilder()
                 .retryIfExceptionOfType(Exception.class) //发生异常时重试
                 .retryIfRuntimeException()  //发生运行时异常时重试
-                .withWaitStrategy(WaitStrategies.fixedWait(2L, TimeUnit.SECONDS)) //每次重试之间等待2秒钟
-                .withStopStrategy(StopStrategies.stopAfterAttempt(3))  //尝试3次后停止
+                .withWaitStrategy(WaitStrategies.fixedWait(WAIT_MILLIS, TimeUnit.MILLISECONDS)) //每次重试之间等待2秒钟
+                .withStopStrategy(StopStrategies.stopAfterAttempt(MAX_ATTEMPTS))  //尝试3次后停止
                 .build();
         return retryer.call(callable);
     }
+
+    @Override
+    public CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        CompletableFuture<RpcResponse> result = new CompletableFuture<>();
+        this.attempt(supplier, 1, result);
+        return result;
+    }
+
+    /**
+     * 执行一次尝试，失败时通过定时器安排下一次尝试
+     */
+    private void attempt(Supplier<CompletableFuture<RpcResponse>> supplier, int attempt, CompletableFuture<RpcResponse> result) {
+        supplier.get().whenComplete((rpcResponse, e) -> {
+            if (e == null) {
+                result.complete(rpcResponse);
+            } else if (attempt >= MAX_ATTEMPTS) {
+                result.completeExceptionally(e);
+            } else {
+                scheduler.schedule(() -> this.attempt(supplier, attempt + 1, result), WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
 }
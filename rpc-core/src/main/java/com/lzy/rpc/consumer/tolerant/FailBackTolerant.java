@@ -0,0 +1,113 @@
+package com.lzy.rpc.consumer.tolerant;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.config.ClientConfig;
+import com.lzy.rpc.consumer.proxy.ServiceProxy;
+import com.lzy.rpc.consumer.proxy.Timeouts;
+import com.lzy.rpc.context.RpcContext;
+import com.lzy.rpc.consumer.retry.RetryClassifier;
+import com.lzy.rpc.exception.RpcException;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 失败重发，调用失败时立即返回空结果，之后在后台按固定间隔重新发送请求，适用于消息通知等不关心返回值的调用
+ * 只重发可重试的失败，等待重发的请求数有上限，超出时丢弃
+ */
+@Slf4j
+public class FailBackTolerant implements Tolerant {
+
+    /**
+     * 重发使用的定时器
+     */
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("rpc-failback", true));
+
+    /**
+     * 重发间隔（单位毫秒）
+     */
+    private final long delay;
+
+    /**
+     * 每个请求最多重发的次数
+     */
+    private final int maxAttempts;
+
+    /**
+     * 等待重发的请求数上限
+     */
+    private final int queueSize;
+
+    /**
+     * 等待重发的请求数
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public FailBackTolerant() {
+        ClientConfig clientConfig = RpcApplication.rpcConfig == null
+                ? new ClientConfig() : RpcApplication.rpcConfig.getClient();
+        this.delay = clientConfig.getFailbackDelay();
+        this.maxAttempts = clientConfig.getFailbackMaxAttempts();
+        this.queueSize = clientConfig.getFailbackQueueSize();
+    }
+
+    @Override
+    public RpcResponse tolerant(List<String> urls, Exception e) {
+        log.warn("call failed and cannot be replayed: {}", e.toString());
+        return null;
+    }
+
+    @Override
+    public RpcResponse tolerant(RpcRequest rpcRequest, Set<String> urls, Exception e) {
+        if (!RetryClassifier.isRetriable(e)) {
+            return this.tolerant(null, e);
+        }
+        if (this.pending.incrementAndGet() > this.queueSize) {
+            this.pending.decrementAndGet();
+            log.warn("too many requests waiting for replay, drop {}.{}", rpcRequest.getServiceName(), rpcRequest.getMethodName());
+            return null;
+        }
+        scheduler.schedule(() -> this.replay(rpcRequest, 1), this.delay, TimeUnit.MILLISECONDS);
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> tolerantAsync(RpcRequest rpcRequest, Set<String> urls, Exception e) {
+        return CompletableFuture.completedFuture(this.tolerant(rpcRequest, urls, e));
+    }
+
+    /**
+     * 重新发送请求，每次重发不限制已请求过的节点，并按超时时间重新计算截止时间
+     */
+    private void replay(RpcRequest rpcRequest, int attempt) {
+        RpcContext.setDeadline(rpcRequest, System.currentTimeMillis()
+                + Timeouts.of(rpcRequest.getServiceName(), rpcRequest.getMethodName()));
+        CompletableFuture<RpcResponse> future = ServiceProxy.sendToUntried(rpcRequest, ConcurrentHashMap.newKeySet());
+        if (future == null) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(new RpcException("no available node", true));
+        }
+        future.whenComplete((rpcResponse, e) -> {
+            if (e != null && attempt < this.maxAttempts && RetryClassifier.isRetriable(e)) {
+                scheduler.schedule(() -> this.replay(rpcRequest, attempt + 1), this.delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+            this.pending.decrementAndGet();
+            if (e != null) {
+                log.warn("{}.{} still failed after {} replays, drop it: {}",
+                        rpcRequest.getServiceName(), rpcRequest.getMethodName(), attempt, ServiceProxy.unwrap(e).toString());
+            }
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package com.lzy.rpc.consumer.tolerant;
+
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.exception.RpcException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 快速失败，不做任何处理，将异常抛给调用方
+ * 服务方法抛出的运行时异常原样抛出，其他异常包装为RpcException
+ */
+public class FailFastTolerant implements Tolerant {
+
+    @Override
+    public RpcResponse tolerant(List<String> urls, Exception e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        throw new RpcException("call failed, requested nodes: " + urls, e, false);
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> tolerantAsync(List<String> urls, Exception e) {
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+}
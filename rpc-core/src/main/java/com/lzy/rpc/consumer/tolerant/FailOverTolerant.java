@@ -0,0 +1,48 @@
+package com.lzy.rpc.consumer.tolerant;
+
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.consumer.proxy.ServiceProxy;
+import com.lzy.rpc.consumer.retry.RetryClassifier;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 故障转移，重试后仍然失败时依次请求其他未请求过的节点，所有节点都失败后快速失败
+ * 只对可重试的失败进行转移，服务方法抛出的业务异常直接抛给调用方
+ */
+public class FailOverTolerant extends FailFastTolerant {
+
+    @Override
+    public RpcResponse tolerant(RpcRequest rpcRequest, Set<String> urls, Exception e) {
+        while (RetryClassifier.isRetriable(e)) {
+            CompletableFuture<RpcResponse> future = ServiceProxy.sendToUntried(rpcRequest, urls);
+            if (future == null) {
+                break;
+            }
+            try {
+                return future.get();
+            } catch (ExecutionException ex) {
+                e = ServiceProxy.unwrap(ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                e = ex;
+            }
+        }
+        return this.tolerant(new ArrayList<>(urls), e);
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> tolerantAsync(RpcRequest rpcRequest, Set<String> urls, Exception e) {
+        CompletableFuture<RpcResponse> future = RetryClassifier.isRetriable(e) ? ServiceProxy.sendToUntried(rpcRequest, urls) : null;
+        if (future == null) {
+            return this.tolerantAsync(new ArrayList<>(urls), e);
+        }
+        return future.handle((rpcResponse, ex) -> ex == null ? CompletableFuture.completedFuture(rpcResponse)
+                        : this.tolerantAsync(rpcRequest, urls, ServiceProxy.unwrap(ex)))
+                .thenCompose(next -> next);
+    }
+}
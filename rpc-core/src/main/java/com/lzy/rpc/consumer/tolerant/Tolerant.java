@@ -1,8 +1,12 @@
 package com.lzy.rpc.consumer.tolerant;
 
+import com.lzy.rpc.bean.RpcRequest;
 import com.lzy.rpc.bean.RpcResponse;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 容错接口
@@ -16,4 +20,42 @@ public interface Tolerant {
      * @return
      */
     public RpcResponse tolerant(List<String> urls,Exception e);
+
+    /**
+     * 异步调用的容错，返回的future即为调用结果
+     * 默认直接执行同步的容错逻辑
+     *
+     * @param urls   无法提供服务的节点地址
+     * @param e      异常
+     * @return
+     */
+    default CompletableFuture<RpcResponse> tolerantAsync(List<String> urls, Exception e) {
+        CompletableFuture<RpcResponse> future = new CompletableFuture<>();
+        try {
+            future.complete(this.tolerant(urls, e));
+        } catch (Exception ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * 带请求信息的容错，需要重新发送请求的策略（故障转移、失败重发）实现该方法
+     * 默认执行不带请求信息的容错逻辑
+     *
+     * @param rpcRequest 失败的请求
+     * @param urls       已请求过的节点地址，重新发送时会继续记录
+     * @param e          异常
+     * @return
+     */
+    default RpcResponse tolerant(RpcRequest rpcRequest, Set<String> urls, Exception e) {
+        return this.tolerant(new ArrayList<>(urls), e);
+    }
+
+    /**
+     * 带请求信息的异步调用容错，默认执行不带请求信息的容错逻辑
+     */
+    default CompletableFuture<RpcResponse> tolerantAsync(RpcRequest rpcRequest, Set<String> urls, Exception e) {
+        return this.tolerantAsync(new ArrayList<>(urls), e);
+    }
 }
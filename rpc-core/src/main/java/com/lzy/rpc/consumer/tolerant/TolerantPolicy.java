@@ -6,4 +6,19 @@ public class TolerantPolicy {
      * 默认容错策略
      */
     public static final String DEFAULT_TOLERANT = "default";
+
+    /**
+     * 快速失败，将异常抛给调用方
+     */
+    public static final String FAIL_FAST = "failFast";
+
+    /**
+     * 故障转移，依次请求其他未请求过的节点
+     */
+    public static final String FAIL_OVER = "failOver";
+
+    /**
+     * 失败重发，立即返回空结果，之后在后台异步重新发送请求
+     */
+    public static final String FAIL_BACK = "failBack";
 }
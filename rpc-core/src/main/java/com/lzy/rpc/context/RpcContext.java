@@ -0,0 +1,60 @@
+package com.lzy.rpc.context;
+
+import com.lzy.rpc.bean.RpcRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 调用上下文，保存当前线程正在处理的请求的截止时间
+ * 服务端执行服务方法前设置，服务方法内发起的远程调用继承剩余的时间；
+ * 截止时间为绝对时间（System.currentTimeMillis），通过请求元数据传递，依赖各节点的时钟同步
+ */
+public class RpcContext {
+
+    /**
+     * 截止时间在请求元数据中的键
+     */
+    public static final String DEADLINE = "deadline";
+
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    /**
+     * @return 当前线程的截止时间，未设置时返回0
+     */
+    public static long getDeadline() {
+        Long value = deadline.get();
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * 设置当前线程的截止时间，之后发起的远程调用不会超过该时间
+     */
+    public static void setDeadline(long value) {
+        deadline.set(value);
+    }
+
+    public static void removeDeadline() {
+        deadline.remove();
+    }
+
+    /**
+     * @return 请求的截止时间，未设置时返回0
+     */
+    public static long getDeadline(RpcRequest rpcRequest) {
+        Map<String, String> metadata = rpcRequest.getMetadata();
+        String value = metadata == null ? null : metadata.get(DEADLINE);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * 设置请求的截止时间
+     * 替换整个元数据而不是原地修改，请求可能正在其他线程上序列化
+     */
+    public static void setDeadline(RpcRequest rpcRequest, long value) {
+        Map<String, String> metadata = rpcRequest.getMetadata() == null
+                ? new HashMap<>() : new HashMap<>(rpcRequest.getMetadata());
+        metadata.put(DEADLINE, String.valueOf(value));
+        rpcRequest.setMetadata(metadata);
+    }
+}
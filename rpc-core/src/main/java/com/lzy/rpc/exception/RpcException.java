@@ -0,0 +1,26 @@
+package com.lzy.rpc.exception;
+
+/**
+ * 框架层面的调用异常（连接失败、超时、服务端过载等），区别于服务方法自身抛出的业务异常
+ */
+public class RpcException extends RuntimeException {
+
+    /**
+     * 是否可以重试，即请求未被服务端执行或重新执行是安全的
+     */
+    private final boolean retriable;
+
+    public RpcException(String message, boolean retriable) {
+        super(message);
+        this.retriable = retriable;
+    }
+
+    public RpcException(String message, Throwable cause, boolean retriable) {
+        super(message, cause);
+        this.retriable = retriable;
+    }
+
+    public boolean isRetriable() {
+        return this.retriable;
+    }
+}
@@ -0,0 +1,134 @@
+package com.lzy.rpc.loadbalancer;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.ServiceInfo;
+import com.lzy.rpc.config.ClientConfig;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一致性哈希负载均衡
+ * 按请求中指定位置的参数计算哈希，相同参数的请求总是路由到同一节点，节点增减时只影响相邻区间
+ * 每个节点按权重映射为多个虚拟节点，使请求分布更均匀
+ * 虚拟节点数变化会使key的归属改变，因此不参与预热
+ * 哈希环只在服务节点列表变化时重建（注册中心缓存的列表对象只在节点变化时替换）
+ */
+public class ConsistentHashLoadBalancer implements LoadBalancer {
+
+    /**
+     * 参与哈希的参数下标
+     */
+    private final int[] hashArguments;
+
+    /**
+     * 每单位权重对应的虚拟节点数
+     */
+    private final int hashNodes;
+
+    /**
+     * 哈希环缓存，结构为：服务名称:哈希环
+     */
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    public ConsistentHashLoadBalancer() {
+        ClientConfig clientConfig = RpcApplication.rpcConfig == null
+                ? new ClientConfig() : RpcApplication.rpcConfig.getClient();
+        this.hashArguments = Arrays.stream(clientConfig.getHashArguments().split(","))
+                .map(String::trim).filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+        this.hashNodes = Math.max(clientConfig.getHashNodes(), 1);
+    }
+
+    /**
+     * 没有请求信息时无法计算哈希，固定选择第一个节点
+     */
+    @Override
+    public ServiceInfo select(List<ServiceInfo> serviceInfoList) {
+        return serviceInfoList.get(0);
+    }
+
+    @Override
+    public ServiceInfo select(RpcRequest rpcRequest, List<ServiceInfo> serviceInfoList) {
+        if (serviceInfoList.size() == 1) {
+            return serviceInfoList.get(0);
+        }
+        String serviceName = serviceInfoList.get(0).getServiceName();
+        Ring ring = this.rings.get(serviceName);
+        if (ring == null || ring.serviceInfoList != serviceInfoList) {
+            ring = new Ring(serviceInfoList, this.hashNodes);
+            this.rings.put(serviceName, ring);
+        }
+        return ring.select(MurmurHash.hash64(this.buildKey(rpcRequest)));
+    }
+
+    /**
+     * 拼接参与哈希的参数，下标越界的参数忽略
+     */
+    private String buildKey(RpcRequest rpcRequest) {
+        Object[] args = rpcRequest.getArgs();
+        if (args == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder();
+        for (int index : this.hashArguments) {
+            if (index >= 0 && index < args.length) {
+                key.append(args[index]).append(',');
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * 哈希环，虚拟节点按哈希值排序后二分查找，构建后不再修改
+     */
+    private static class Ring {
+
+        /**
+         * 构建该哈希环时的服务节点列表
+         */
+        private final List<ServiceInfo> serviceInfoList;
+
+        private final long[] hashes;
+
+        private final ServiceInfo[] nodes;
+
+        Ring(List<ServiceInfo> serviceInfoList, int hashNodes) {
+            this.serviceInfoList = serviceInfoList;
+            int total = 0;
+            for (ServiceInfo serviceInfo : serviceInfoList) {
+                total += ServiceWeight.of(serviceInfo) * hashNodes;
+            }
+            long[][] entries = new long[total][];
+            int count = 0;
+            for (int i = 0; i < serviceInfoList.size(); i++) {
+                ServiceInfo serviceInfo = serviceInfoList.get(i);
+                int virtualNodes = ServiceWeight.of(serviceInfo) * hashNodes;
+                for (int j = 0; j < virtualNodes; j++) {
+                    entries[count++] = new long[]{MurmurHash.hash64(serviceInfo.getAddress() + "#" + j), i};
+                }
+            }
+            Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+            this.hashes = new long[total];
+            this.nodes = new ServiceInfo[total];
+            for (int i = 0; i < total; i++) {
+                this.hashes[i] = entries[i][0];
+                this.nodes[i] = serviceInfoList.get((int) entries[i][1]);
+            }
+        }
+
+        /**
+         * 顺时针找到第一个不小于该哈希值的虚拟节点
+         */
+        ServiceInfo select(long hash) {
+            int index = Arrays.binarySearch(this.hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return this.nodes[index == this.nodes.length ? 0 : index];
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.lzy.rpc.loadbalancer;
+
+import com.lzy.rpc.bean.ServiceInfo;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最少活跃请求负载均衡
+ * 选择进行中请求数最少的节点，处理越快的节点积压的请求越少，因而获得更多流量
+ * 活跃数相同的节点之间按有效权重（考虑预热）随机选择
+ */
+public class LeastActiveLoadBalancer implements LoadBalancer {
+
+    @Override
+    public ServiceInfo select(List<ServiceInfo> serviceInfoList) {
+        int size = serviceInfoList.size();
+        int leastActive = Integer.MAX_VALUE;
+        /* 活跃数最少的节点下标及其数量 */
+        int[] leastIndexes = new int[size];
+        int leastCount = 0;
+        double[] weights = new double[size];
+        double totalWeight = 0;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            int active = NodeStats.get(serviceInfoList.get(i).getAddress()).getActive();
+            double weight = ServiceWeight.effective(serviceInfoList.get(i), now);
+            weights[i] = weight;
+            if (active < leastActive) {
+                leastActive = active;
+                leastCount = 0;
+                totalWeight = 0;
+            }
+            if (active == leastActive) {
+                leastIndexes[leastCount++] = i;
+                totalWeight += weight;
+            }
+        }
+        if (leastCount == 1) {
+            return serviceInfoList.get(leastIndexes[0]);
+        }
+        double number = ThreadLocalRandom.current().nextDouble(totalWeight);
+        for (int i = 0; i < leastCount; i++) {
+            number -= weights[leastIndexes[i]];
+            if (number < 0) {
+                return serviceInfoList.get(leastIndexes[i]);
+            }
+        }
+        return serviceInfoList.get(leastIndexes[0]);
+    }
+}
@@ -1,5 +1,6 @@
 package com.lzy.rpc.loadbalancer;
 
+import com.lzy.rpc.bean.RpcRequest;
 import com.lzy.rpc.bean.ServiceInfo;
 
 import java.util.List;
@@ -13,4 +14,11 @@ public interface LoadBalancer {
      * 选择要调用的服务
      */
     public ServiceInfo select(List<ServiceInfo> serviceInfoList);
+
+    /**
+     * 按请求选择要调用的服务，需要根据请求内容路由的策略覆盖该方法
+     */
+    default ServiceInfo select(RpcRequest rpcRequest, List<ServiceInfo> serviceInfoList) {
+        return this.select(serviceInfoList);
+    }
 }
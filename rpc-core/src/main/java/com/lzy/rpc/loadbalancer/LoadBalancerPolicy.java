@@ -10,4 +10,12 @@ public class LoadBalancerPolicy {
     public static final String WEIGHTED_RANDOM = "weightedRandom";
 
     public static final String ROUND_ROBIN = "roundRobin";
+
+    public static final String SMOOTH_WEIGHTED_ROUND_ROBIN = "smoothWeightedRoundRobin";
+
+    public static final String CONSISTENT_HASH = "consistentHash";
+
+    public static final String LEAST_ACTIVE = "leastActive";
+
+    public static final String PEAK_EWMA = "peakEwma";
 }
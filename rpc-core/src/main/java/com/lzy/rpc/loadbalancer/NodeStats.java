@@ -0,0 +1,104 @@
+package com.lzy.rpc.loadbalancer;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.config.ClientConfig;
+import com.lzy.rpc.provider.registry.Registry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 服务节点的实时调用统计，由客户端代理在每次调用开始和结束时更新，供感知延迟的负载均衡策略使用
+ * 记录进行中的请求数和响应时间的峰值敏感指数加权移动平均（peak EWMA）：
+ * 响应变慢时立即上调，变快时按时间衰减逐渐下调，使慢节点能被迅速避开
+ */
+public class NodeStats {
+
+    /**
+     * 衰减时间常数（单位纳秒），距上次更新越久，旧值的权重越低
+     */
+    private static final double DECAY_NANOS = TimeUnit.MILLISECONDS.toNanos(RpcApplication.rpcConfig == null
+            ? new ClientConfig().getEwmaDecay() : RpcApplication.rpcConfig.getClient().getEwmaDecay());
+
+    /**
+     * 统计信息，结构为：服务节点地址:统计信息
+     */
+    private static final Map<String, NodeStats> statsMap = new ConcurrentHashMap<>();
+
+    static {
+        /* 节点下线时删除该节点的调用统计 */
+        Registry.addOfflineListener(NodeStats::remove);
+    }
+
+    /**
+     * 进行中的请求数
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * 响应时间的移动平均（单位纳秒），尚无响应时为0
+     */
+    private volatile double ewma;
+
+    /**
+     * 上次更新移动平均的时间
+     */
+    private volatile long lastUpdate = System.nanoTime();
+
+    /**
+     * 获取指定节点的统计信息，不存在时创建
+     */
+    public static NodeStats get(String address) {
+        NodeStats stats = statsMap.get(address);
+        return stats != null ? stats : statsMap.computeIfAbsent(address, key -> new NodeStats());
+    }
+
+    /**
+     * 移除节点的统计信息（节点下线时调用）
+     */
+    public static void remove(String address) {
+        statsMap.remove(address);
+    }
+
+    /**
+     * 请求开始
+     *
+     * @return 开始时间，调用结束时传给end
+     */
+    public long begin() {
+        this.active.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 请求结束（无论成功或失败），失败的请求同样计入响应时间，超时会使移动平均迅速升高
+     */
+    public void end(long startTime) {
+        this.active.decrementAndGet();
+        long now = System.nanoTime();
+        this.observe(now - startTime, now);
+    }
+
+    private synchronized void observe(long rtt, long now) {
+        if (rtt > this.ewma) {
+            this.ewma = rtt;
+        } else {
+            double weight = Math.exp(-(now - this.lastUpdate) / DECAY_NANOS);
+            this.ewma = this.ewma * weight + rtt * (1 - weight);
+        }
+        this.lastUpdate = now;
+    }
+
+    public int getActive() {
+        return this.active.get();
+    }
+
+    /**
+     * 当前的响应时间移动平均，按距上次更新的时间衰减，使长时间未被选中的节点有机会重新获得流量
+     */
+    public double getEwma() {
+        double ewma = this.ewma;
+        return ewma == 0 ? 0 : ewma * Math.exp(-(System.nanoTime() - this.lastUpdate) / DECAY_NANOS);
+    }
+}
@@ -0,0 +1,47 @@
+package com.lzy.rpc.loadbalancer;
+
+import com.lzy.rpc.bean.ServiceInfo;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基于peak EWMA的两次随机选择（power of two choices）负载均衡
+ * 随机选出两个节点，选择负载评分较低的一个，评分为 响应时间移动平均*(进行中请求数+1)/有效权重
+ * 相比遍历全部节点开销恒定，且避免所有客户端同时涌向同一个"最快"节点
+ */
+public class PeakEwmaLoadBalancer implements LoadBalancer {
+
+    /**
+     * 尚无响应时间但已有请求在途的节点的评分，使新节点在首个响应返回前不会被大量请求压垮
+     */
+    private static final double PENALTY = Double.MAX_VALUE / 2;
+
+    @Override
+    public ServiceInfo select(List<ServiceInfo> serviceInfoList) {
+        int size = serviceInfoList.size();
+        if (size == 1) {
+            return serviceInfoList.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        /* 第二个节点与第一个不同 */
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInfo a = serviceInfoList.get(first);
+        ServiceInfo b = serviceInfoList.get(second);
+        return PeakEwmaLoadBalancer.score(a) <= PeakEwmaLoadBalancer.score(b) ? a : b;
+    }
+
+    private static double score(ServiceInfo serviceInfo) {
+        NodeStats stats = NodeStats.get(serviceInfo.getAddress());
+        double ewma = stats.getEwma();
+        int active = stats.getActive();
+        if (ewma == 0 && active > 0) {
+            return PENALTY;
+        }
+        return ewma * (active + 1) / ServiceWeight.effective(serviceInfo, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,66 @@
+package com.lzy.rpc.loadbalancer;
+
+import com.lzy.rpc.bean.ServiceInfo;
+
+import java.util.List;
+
+/**
+ * 服务节点权重计算
+ * 刚注册的节点处于预热期（JIT尚未编译热点代码、缓存未加载），其有效权重从配置权重的一小部分开始，
+ * 在预热时长内线性增长到配置权重，避免节点一上线就承担全部流量导致延迟尖刺
+ */
+public class ServiceWeight {
+
+    /**
+     * 预热开始时有效权重占配置权重的比例
+     */
+    private static final double MIN_WARMUP_RATIO = 0.05;
+
+    /**
+     * 有节点处于预热期时，负载均衡器预先构建的选择结构的刷新间隔（单位毫秒）
+     */
+    private static final long WARMUP_REFRESH_MILLIS = 1000;
+
+    /**
+     * 配置的权重，未配置或非法时为1
+     */
+    public static int of(ServiceInfo serviceInfo) {
+        Integer weight = serviceInfo.getWeight();
+        return weight == null || weight < 1 ? 1 : weight;
+    }
+
+    /**
+     * 考虑预热后的有效权重
+     *
+     * @param now 当前时间（单位毫秒）
+     */
+    public static double effective(ServiceInfo serviceInfo, long now) {
+        int weight = ServiceWeight.of(serviceInfo);
+        if (!ServiceWeight.isWarming(serviceInfo, now)) {
+            return weight;
+        }
+        double ratio = (double) Math.max(now - serviceInfo.getRegisterTime(), 0) / serviceInfo.getWarmup();
+        return weight * Math.max(ratio, MIN_WARMUP_RATIO);
+    }
+
+    /**
+     * 节点是否处于预热期
+     */
+    public static boolean isWarming(ServiceInfo serviceInfo, long now) {
+        Long registerTime = serviceInfo.getRegisterTime();
+        Integer warmup = serviceInfo.getWarmup();
+        return registerTime != null && warmup != null && warmup > 0 && now - registerTime < warmup;
+    }
+
+    /**
+     * 按当前有效权重构建的选择结构需要重建的时间，没有节点处于预热期时永不过期
+     */
+    public static long refreshTime(List<ServiceInfo> serviceInfoList, long now) {
+        for (ServiceInfo serviceInfo : serviceInfoList) {
+            if (ServiceWeight.isWarming(serviceInfo, now)) {
+                return now + WARMUP_REFRESH_MILLIS;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,154 @@
+package com.lzy.rpc.loadbalancer;
+
+import com.lzy.rpc.bean.ServiceInfo;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 平滑加权轮询负载均衡（同nginx）
+ * 每轮中各节点被选中的次数与权重成正比，且同一节点的选择均匀穿插，不会连续集中到高权重节点
+ * 服务节点列表变化时预先计算出一整轮的选择序列，之后每次选择只需原子递增下标，无锁
+ * 有节点处于预热期时定期重新计算有效权重，权重变化时才重建选择序列，使其有效权重逐渐增长
+ */
+public class SmoothWeightedRoundRobinLoadBalancer implements LoadBalancer {
+
+    /**
+     * 一轮选择序列的最大长度，权重之和超过时按比例缩小权重
+     */
+    private static final int MAX_SEQUENCE_LENGTH = 1 << 16;
+
+    /**
+     * 有效权重转为整数时的放大倍数，使预热中的小数权重得以体现
+     */
+    private static final int WEIGHT_SCALE = 100;
+
+    /**
+     * 选择序列缓存，结构为：服务名称:选择序列
+     */
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+    @Override
+    public ServiceInfo select(List<ServiceInfo> serviceInfoList) {
+        if (serviceInfoList.size() == 1) {
+            return serviceInfoList.get(0);
+        }
+        String serviceName = serviceInfoList.get(0).getServiceName();
+        Sequence sequence = this.sequences.get(serviceName);
+        long now = System.currentTimeMillis();
+        if (sequence == null || sequence.isStale(serviceInfoList, now)) {
+            /* 同一服务只由一个线程重建，其他线程等待并使用其结果，避免各自重建后互相覆盖、重复从下标0开始选择 */
+            sequence = this.sequences.compute(serviceName, (key, current) -> current == null || current.serviceInfoList != serviceInfoList
+                    ? new Sequence(serviceInfoList, now)
+                    : now >= current.refreshTime ? current.refresh(now) : current);
+        }
+        return sequence.select();
+    }
+
+    /**
+     * 一整轮的选择序列，构建后不再修改
+     */
+    private static class Sequence {
+
+        /**
+         * 构建该序列时的服务节点列表
+         */
+        private final List<ServiceInfo> serviceInfoList;
+
+        /**
+         * 需要重建的时间
+         */
+        private final long refreshTime;
+
+        /**
+         * 构建该序列时各节点的整数权重
+         */
+        private final int[] weights;
+
+        private final ServiceInfo[] nodes;
+
+        private final AtomicLong index;
+
+        Sequence(List<ServiceInfo> serviceInfoList, long now) {
+            this(serviceInfoList, now, Sequence.normalize(serviceInfoList, now), null, new AtomicLong());
+        }
+
+        private Sequence(List<ServiceInfo> serviceInfoList, long now, int[] weights, ServiceInfo[] nodes, AtomicLong index) {
+            this.serviceInfoList = serviceInfoList;
+            this.refreshTime = ServiceWeight.refreshTime(serviceInfoList, now);
+            this.weights = weights;
+            this.nodes = nodes == null ? Sequence.build(serviceInfoList, weights) : nodes;
+            this.index = index;
+        }
+
+        /**
+         * 节点列表已变化或到达重建时间
+         */
+        boolean isStale(List<ServiceInfo> serviceInfoList, long now) {
+            /* 注册中心缓存的列表对象只在节点变化时替换，以列表对象判断节点是否变化 */
+            return this.serviceInfoList != serviceInfoList || now >= this.refreshTime;
+        }
+
+        /**
+         * 到达重建时间后重新计算有效权重，权重未变时沿用选择序列，只更新重建时间
+         * 下标始终沿用，使选择从当前位置继续而不是回到序列开头
+         */
+        Sequence refresh(long now) {
+            int[] weights = Sequence.normalize(this.serviceInfoList, now);
+            return new Sequence(this.serviceInfoList, now, weights,
+                    Arrays.equals(weights, this.weights) ? this.nodes : null, this.index);
+        }
+
+        ServiceInfo select() {
+            return this.nodes[(int) (this.index.getAndIncrement() % this.nodes.length)];
+        }
+
+        private static ServiceInfo[] build(List<ServiceInfo> serviceInfoList, int[] weights) {
+            int size = serviceInfoList.size();
+            int totalWeight = 0;
+            for (int weight : weights) {
+                totalWeight += weight;
+            }
+            /* 每次选择时各节点的当前权重加上自身权重，选出当前权重最大者，并将其当前权重减去总权重 */
+            long[] currentWeights = new long[size];
+            ServiceInfo[] nodes = new ServiceInfo[totalWeight];
+            for (int n = 0; n < totalWeight; n++) {
+                int best = 0;
+                for (int i = 0; i < size; i++) {
+                    currentWeights[i] += weights[i];
+                    if (currentWeights[i] > currentWeights[best]) {
+                        best = i;
+                    }
+                }
+                currentWeights[best] -= totalWeight;
+                nodes[n] = serviceInfoList.get(best);
+            }
+            return nodes;
+        }
+
+        /**
+         * 有效权重放大取整后除以最大公约数，总和仍超过上限时按比例缩小（每个节点至少为1）
+         */
+        private static int[] normalize(List<ServiceInfo> serviceInfoList, long now) {
+            int size = serviceInfoList.size();
+            int[] weights = new int[size];
+            int gcd = 0;
+            long totalWeight = 0;
+            for (int i = 0; i < size; i++) {
+                weights[i] = (int) Math.max(1, Math.round(ServiceWeight.effective(serviceInfoList.get(i), now) * WEIGHT_SCALE));
+                gcd = BigInteger.valueOf(gcd).gcd(BigInteger.valueOf(weights[i])).intValue();
+                totalWeight += weights[i];
+            }
+            totalWeight /= gcd;
+            double scale = totalWeight > MAX_SEQUENCE_LENGTH ? (double) MAX_SEQUENCE_LENGTH / totalWeight : 1;
+            for (int i = 0; i < size; i++) {
+                weights[i] = Math.max(1, (int) (weights[i] / gcd * scale));
+            }
+            return weights;
+        }
+    }
+}
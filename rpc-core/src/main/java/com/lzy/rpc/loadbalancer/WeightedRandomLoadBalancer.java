@@ -2,29 +2,143 @@ package com.lzy.rpc.loadbalancer;
 
 import com.lzy.rpc.bean.ServiceInfo;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 带权重的随机负载均衡
+ * 服务节点列表变化时按权重构建别名表（alias method），之后每次选择只需两次随机数，与节点数无关
+ * 有节点处于预热期时定期重新计算有效权重，权重变化时才重建别名表，使其有效权重逐渐增长
  */
 public class WeightedRandomLoadBalancer implements LoadBalancer {
 
-    private final Random random = new Random();
+    /**
+     * 别名表缓存，结构为：服务名称:别名表
+     */
+    private final Map<String, AliasTable> tables = new ConcurrentHashMap<>();
 
     @Override
     public ServiceInfo select(List<ServiceInfo> serviceInfoList) {
-        int totalWeight = 0;
-        for(int i = 0;i<serviceInfoList.size();i++){
-            totalWeight += serviceInfoList.get(i).getWeight();
-        }
-        int number = random.nextInt(totalWeight);
-        for(int i = 0;i<serviceInfoList.size();i++){
-            number -= serviceInfoList.get(i).getWeight();
-            if(number<0){
-                return serviceInfoList.get(i);
+        if (serviceInfoList.size() == 1) {
+            return serviceInfoList.get(0);
+        }
+        String serviceName = serviceInfoList.get(0).getServiceName();
+        AliasTable table = this.tables.get(serviceName);
+        long now = System.currentTimeMillis();
+        if (table == null || table.isStale(serviceInfoList, now)) {
+            /* 同一服务只由一个线程重建，其他线程等待并使用其结果 */
+            table = this.tables.compute(serviceName, (key, current) -> current == null || current.serviceInfoList != serviceInfoList
+                    ? new AliasTable(serviceInfoList, now)
+                    : now >= current.refreshTime ? current.refresh(now) : current);
+        }
+        return table.select();
+    }
+
+    /**
+     * 别名表，每个格子以prob的概率选中自身，否则选中alias，构建后不再修改
+     */
+    private static class AliasTable {
+
+        /**
+         * 构建该别名表时的服务节点列表
+         */
+        private final List<ServiceInfo> serviceInfoList;
+
+        /**
+         * 需要重建的时间
+         */
+        private final long refreshTime;
+
+        /**
+         * 构建该别名表时各节点的有效权重
+         */
+        private final double[] weights;
+
+        private final double[] prob;
+
+        private final int[] alias;
+
+        AliasTable(List<ServiceInfo> serviceInfoList, long now) {
+            this(serviceInfoList, now, AliasTable.weights(serviceInfoList, now));
+        }
+
+        private AliasTable(AliasTable table, long now) {
+            this.serviceInfoList = table.serviceInfoList;
+            this.refreshTime = ServiceWeight.refreshTime(table.serviceInfoList, now);
+            this.weights = table.weights;
+            this.prob = table.prob;
+            this.alias = table.alias;
+        }
+
+        private AliasTable(List<ServiceInfo> serviceInfoList, long now, double[] weights) {
+            this.serviceInfoList = serviceInfoList;
+            this.refreshTime = ServiceWeight.refreshTime(serviceInfoList, now);
+            this.weights = weights;
+            int size = serviceInfoList.size();
+            this.prob = new double[size];
+            this.alias = new int[size];
+            double totalWeight = 0;
+            for (double weight : weights) {
+                totalWeight += weight;
+            }
+            /* 按平均权重归一化，小于1的格子用大于1的格子补齐 */
+            double[] scaled = new double[size];
+            Deque<Integer> small = new ArrayDeque<>();
+            Deque<Integer> large = new ArrayDeque<>();
+            for (int i = 0; i < size; i++) {
+                scaled[i] = weights[i] * size / totalWeight;
+                (scaled[i] < 1 ? small : large).push(i);
+            }
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int less = small.pop();
+                int more = large.pop();
+                this.prob[less] = scaled[less];
+                this.alias[less] = more;
+                scaled[more] = scaled[more] + scaled[less] - 1;
+                (scaled[more] < 1 ? small : large).push(more);
+            }
+            /* 剩余格子的概率因浮点误差可能略偏离1，直接取1 */
+            while (!large.isEmpty()) {
+                this.prob[large.pop()] = 1;
+            }
+            while (!small.isEmpty()) {
+                this.prob[small.pop()] = 1;
+            }
+        }
+
+        /**
+         * 节点列表已变化或到达重建时间
+         */
+        boolean isStale(List<ServiceInfo> serviceInfoList, long now) {
+            /* 注册中心缓存的列表对象只在节点变化时替换，以列表对象判断节点是否变化 */
+            return this.serviceInfoList != serviceInfoList || now >= this.refreshTime;
+        }
+
+        /**
+         * 到达重建时间后重新计算有效权重，权重未变时沿用别名表，只更新重建时间
+         */
+        AliasTable refresh(long now) {
+            double[] weights = AliasTable.weights(this.serviceInfoList, now);
+            return Arrays.equals(weights, this.weights) ? new AliasTable(this, now) : new AliasTable(this.serviceInfoList, now, weights);
+        }
+
+        ServiceInfo select() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int index = random.nextInt(this.prob.length);
+            return this.serviceInfoList.get(random.nextDouble() < this.prob[index] ? index : this.alias[index]);
+        }
+
+        private static double[] weights(List<ServiceInfo> serviceInfoList, long now) {
+            double[] weights = new double[serviceInfoList.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = ServiceWeight.effective(serviceInfoList.get(i), now);
             }
+            return weights;
         }
-        return serviceInfoList.get(0);
     }
 }
@@ -0,0 +1,173 @@
+package com.lzy.rpc.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 响应时间直方图，按对数-线性划分桶（与HdrHistogram相同的思路）：
+ * 每个2的幂区间再等分为16个子桶，相对误差不超过1/16，覆盖1微秒到约38小时
+ * 记录只做一次下标计算和一次原子自增，无锁
+ */
+public class LatencyHistogram {
+
+    /**
+     * 每个2的幂区间划分的子桶数为2^SUB_BITS
+     */
+    private static final int SUB_BITS = 4;
+
+    private static final int SUB = 1 << SUB_BITS;
+
+    /**
+     * 可记录的最大值（单位微秒），超出的按最大值记录
+     */
+    private static final long MAX_VALUE = (1L << 37) - 1;
+
+    private static final int BUCKETS = LatencyHistogram.index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * 所有样本之和（单位微秒）
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * 记录一次响应时间
+     *
+     * @param nanos 响应时间（单位纳秒）
+     */
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_VALUE);
+        this.counts.incrementAndGet(LatencyHistogram.index(micros));
+        this.sum.add(micros);
+    }
+
+    /**
+     * 当前数据的快照，快照期间的并发记录可能部分计入
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.counts.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, this.sum.sum());
+    }
+
+    /**
+     * 值所在桶的下标：小于16的值每个值一个桶，更大的值按最高位所在的2的幂区间和其后4位确定子桶
+     */
+    static int index(long value) {
+        int shift = Math.max(63 - Long.numberOfLeadingZeros(value) - SUB_BITS, 0);
+        return (int) (shift * SUB + (value >> shift));
+    }
+
+    /**
+     * 桶的上界（不含，单位微秒）
+     */
+    static long upperBound(int index) {
+        int shift = Math.max(index / SUB - 1, 0);
+        return (long) (index - shift * SUB + 1) << shift;
+    }
+
+    /**
+     * 直方图快照
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private Snapshot(long[] counts, long count, long sum) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        /**
+         * 两次快照之间新增的样本，用于按区间输出而不必替换直方图，替换时正在记录的样本会丢失
+         *
+         * @param previous 同一直方图更早的快照
+         */
+        public Snapshot minus(Snapshot previous) {
+            long[] counts = new long[this.counts.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.counts[i] - previous.counts[i];
+                total += counts[i];
+            }
+            return new Snapshot(counts, total, this.sum - previous.sum);
+        }
+
+        /**
+         * 样本数
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * 样本之和（单位微秒）
+         */
+        public long getSum() {
+            return this.sum;
+        }
+
+        /**
+         * 平均值（单位微秒）
+         */
+        public double getMean() {
+            return this.count == 0 ? 0 : (double) this.sum / this.count;
+        }
+
+        /**
+         * 百分位（单位微秒），返回所在桶的上界
+         *
+         * @param percentile 取值(0, 100]
+         */
+        public long getPercentile(double percentile) {
+            if (this.count == 0) {
+                return 0;
+            }
+            long rank = Math.max((long) Math.ceil(percentile / 100 * this.count), 1);
+            long seen = 0;
+            for (int i = 0; i < this.counts.length; i++) {
+                seen += this.counts[i];
+                if (seen >= rank) {
+                    return LatencyHistogram.upperBound(i);
+                }
+            }
+            return MAX_VALUE;
+        }
+
+        /**
+         * 最大值所在桶的上界（单位微秒）
+         */
+        public long getMax() {
+            for (int i = this.counts.length - 1; i >= 0; i--) {
+                if (this.counts[i] > 0) {
+                    return LatencyHistogram.upperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * 不大于给定值的样本数，给定值不是桶的边界时不计入其所在的桶
+         *
+         * @param micros 单位微秒
+         */
+        public long countAtOrBelow(long micros) {
+            long result = 0;
+            for (int i = 0; i < this.counts.length && LatencyHistogram.upperBound(i) <= micros + 1; i++) {
+                result += this.counts[i];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.lzy.rpc.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个方法的调用统计：完成的调用数、失败数、拒绝数、进行中的调用数和响应时间分布
+ * 计数使用LongAdder，多线程并发记录时不会竞争同一个变量
+ */
+public class MethodMetrics {
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder inflight = new LongAdder();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * 调用开始
+     *
+     * @return 开始时间，调用结束时传给end
+     */
+    public long begin() {
+        this.inflight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * 调用结束
+     *
+     * @param startTime begin返回的开始时间
+     * @param error     是否失败
+     * @return 调用耗时（单位纳秒）
+     */
+    public long end(long startTime, boolean error) {
+        this.inflight.decrement();
+        this.calls.increment();
+        if (error) {
+            this.errors.increment();
+        }
+        long nanos = System.nanoTime() - startTime;
+        this.latency.record(nanos);
+        return nanos;
+    }
+
+    /**
+     * 请求未执行即被拒绝（过载、已超过截止时间等）
+     */
+    public void reject() {
+        this.rejected.increment();
+    }
+
+    /**
+     * 已经开始统计的请求未执行即被拒绝，不计入完成的调用
+     */
+    public void abort() {
+        this.inflight.decrement();
+        this.rejected.increment();
+    }
+
+    public long getCalls() {
+        return this.calls.sum();
+    }
+
+    public long getErrors() {
+        return this.errors.sum();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    public long getInflight() {
+        return this.inflight.sum();
+    }
+
+    public LatencyHistogram.Snapshot getLatency() {
+        return this.latency.snapshot();
+    }
+}
@@ -0,0 +1,53 @@
+package com.lzy.rpc.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按服务和方法保存调用统计，客户端和服务端各一个实例
+ * 使用两级映射查找，记录时无需拼接字符串
+ */
+public class MetricsRegistry {
+
+    /**
+     * 客户端发起的调用
+     */
+    public static final MetricsRegistry CLIENT = new MetricsRegistry();
+
+    /**
+     * 服务端处理的请求
+     */
+    public static final MetricsRegistry SERVER = new MetricsRegistry();
+
+    /**
+     * 结构为：服务名称:(方法名称:调用统计)
+     */
+    private final Map<String, Map<String, MethodMetrics>> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * 获取方法的调用统计，不存在时创建
+     */
+    public MethodMetrics get(String serviceName, String methodName) {
+        Map<String, MethodMetrics> methods = this.metrics.get(serviceName);
+        if (methods == null) {
+            methods = this.metrics.computeIfAbsent(serviceName, key -> new ConcurrentHashMap<>());
+        }
+        MethodMetrics methodMetrics = methods.get(methodName);
+        return methodMetrics != null ? methodMetrics : methods.computeIfAbsent(methodName, key -> new MethodMetrics());
+    }
+
+    /**
+     * 所有方法的调用统计，按名称排序
+     *
+     * @return 结构为：服务名称:(方法名称:调用统计)
+     */
+    public Map<String, Map<String, MethodMetrics>> getAll() {
+        Map<String, Map<String, MethodMetrics>> result = new TreeMap<>();
+        for (Map.Entry<String, Map<String, MethodMetrics>> entry : this.metrics.entrySet()) {
+            result.put(entry.getKey(), Collections.unmodifiableMap(new TreeMap<>(entry.getValue())));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -0,0 +1,152 @@
+package com.lzy.rpc.metrics;
+
+import com.lzy.rpc.config.MetricsConfig;
+import com.lzy.rpc.consumer.limit.AdaptiveLimiter;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Map;
+
+/**
+ * 以Prometheus文本格式通过HTTP暴露调用统计，只在抓取时遍历统计数据，不影响调用路径
+ * 直方图按Prometheus常用的秒级边界汇总，只累计完全不超过边界的内部桶，边界附近的误差不超过边界的1/16
+ */
+public class PrometheusExporter {
+
+    /**
+     * 输出的直方图边界（单位微秒）
+     */
+    private static final long[] BOUNDS = {500, 1000, 2500, 5000, 10000, 25000, 50000,
+            100000, 250000, 500000, 1000000, 2500000, 5000000, 10000000};
+
+    private static volatile EventLoopGroup group;
+
+    /**
+     * 启动HTTP服务，重复调用时忽略
+     */
+    public static synchronized void start(MetricsConfig metricsConfig) throws InterruptedException {
+        if (group != null) {
+            return;
+        }
+        EventLoopGroup eventLoopGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("rpc-metrics", true));
+        String path = metricsConfig.getPath();
+        try {
+            new ServerBootstrap().group(eventLoopGroup)
+                    .channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) throws Exception {
+                            ch.pipeline().addLast(new HttpServerCodec());
+                            ch.pipeline().addLast(new HttpObjectAggregator(1024));
+                            ch.pipeline().addLast(new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                @Override
+                                protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+                                    boolean found = request.uri().equals(path) || request.uri().startsWith(path + "?");
+                                    FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                                            found ? HttpResponseStatus.OK : HttpResponseStatus.NOT_FOUND,
+                                            Unpooled.copiedBuffer(found ? PrometheusExporter.scrape() : "", CharsetUtil.UTF_8));
+                                    response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain; version=0.0.4; charset=utf-8");
+                                    response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+                                    ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+                                }
+                            });
+                        }
+                    })
+                    .bind(metricsConfig.getPort()).sync();
+        } catch (Exception e) {
+            eventLoopGroup.shutdownGracefully();
+            throw e;
+        }
+        group = eventLoopGroup;
+    }
+
+    /**
+     * 生成当前所有调用统计的Prometheus文本
+     */
+    public static String scrape() {
+        StringBuilder builder = new StringBuilder(4096);
+        PrometheusExporter.write(builder, "rpc_client", MetricsRegistry.CLIENT);
+        PrometheusExporter.write(builder, "rpc_server", MetricsRegistry.SERVER);
+        Map<String, Integer> limits = AdaptiveLimiter.limits();
+        if (!limits.isEmpty()) {
+            builder.append("# TYPE rpc_client_concurrency_limit gauge\n");
+            for (Map.Entry<String, Integer> entry : limits.entrySet()) {
+                String key = entry.getKey();
+                int split = key.lastIndexOf('@');
+                builder.append("rpc_client_concurrency_limit{service=\"").append(PrometheusExporter.escape(key.substring(0, split)))
+                        .append("\",address=\"").append(PrometheusExporter.escape(key.substring(split + 1)))
+                        .append("\"} ").append(entry.getValue()).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void write(StringBuilder builder, String prefix, MetricsRegistry registry) {
+        Map<String, Map<String, MethodMetrics>> all = registry.getAll();
+        if (all.isEmpty()) {
+            return;
+        }
+        builder.append("# TYPE ").append(prefix).append("_calls_total counter\n");
+        PrometheusExporter.each(all, (labels, metrics) ->
+                builder.append(prefix).append("_calls_total").append(labels).append(' ').append(metrics.getCalls()).append('\n'));
+        builder.append("# TYPE ").append(prefix).append("_errors_total counter\n");
+        PrometheusExporter.each(all, (labels, metrics) ->
+                builder.append(prefix).append("_errors_total").append(labels).append(' ').append(metrics.getErrors()).append('\n'));
+        builder.append("# TYPE ").append(prefix).append("_rejected_total counter\n");
+        PrometheusExporter.each(all, (labels, metrics) ->
+                builder.append(prefix).append("_rejected_total").append(labels).append(' ').append(metrics.getRejected()).append('\n'));
+        builder.append("# TYPE ").append(prefix).append("_inflight gauge\n");
+        PrometheusExporter.each(all, (labels, metrics) ->
+                builder.append(prefix).append("_inflight").append(labels).append(' ').append(metrics.getInflight()).append('\n'));
+        builder.append("# TYPE ").append(prefix).append("_latency_seconds histogram\n");
+        PrometheusExporter.each(all, (labels, metrics) -> {
+            LatencyHistogram.Snapshot snapshot = metrics.getLatency();
+            String name = prefix + "_latency_seconds";
+            /* 去掉结尾的}，追加le标签 */
+            String open = labels.substring(0, labels.length() - 1);
+            for (long bound : BOUNDS) {
+                builder.append(name).append("_bucket").append(open).append(",le=\"").append(bound / 1e6).append("\"} ")
+                        .append(snapshot.countAtOrBelow(bound)).append('\n');
+            }
+            builder.append(name).append("_bucket").append(open).append(",le=\"+Inf\"} ").append(snapshot.getCount()).append('\n');
+            builder.append(name).append("_sum").append(labels).append(' ').append(snapshot.getSum() / 1e6).append('\n');
+            builder.append(name).append("_count").append(labels).append(' ').append(snapshot.getCount()).append('\n');
+        });
+    }
+
+    private static void each(Map<String, Map<String, MethodMetrics>> all, Writer writer) {
+        for (Map.Entry<String, Map<String, MethodMetrics>> service : all.entrySet()) {
+            for (Map.Entry<String, MethodMetrics> method : service.getValue().entrySet()) {
+                writer.write("{service=\"" + PrometheusExporter.escape(service.getKey())
+                        + "\",method=\"" + PrometheusExporter.escape(method.getKey()) + "\"}", method.getValue());
+            }
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private interface Writer {
+
+        void write(String labels, MethodMetrics metrics);
+    }
+}
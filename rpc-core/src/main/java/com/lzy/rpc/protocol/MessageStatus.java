@@ -0,0 +1,27 @@
+package com.lzy.rpc.protocol;
+
+/**
+ * 消息状态常量
+ */
+public class MessageStatus {
+
+    /**
+     * 成功
+     */
+    public static final byte OK = 0;
+
+    /**
+     * 请求无法解析
+     */
+    public static final byte BAD_REQUEST = 1;
+
+    /**
+     * 响应无法解析
+     */
+    public static final byte BAD_RESPONSE = 2;
+
+    /**
+     * 服务端过载，请求未执行，可以转到其他节点重试
+     */
+    public static final byte OVERLOADED = 3;
+}
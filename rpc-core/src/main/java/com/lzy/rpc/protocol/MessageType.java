@@ -0,0 +1,34 @@
+package com.lzy.rpc.protocol;
+
+/**
+ * 消息类型常量
+ */
+public class MessageType {
+
+    /**
+     * 请求
+     */
+    public static final byte REQUEST = 0;
+
+    /**
+     * 响应
+     */
+    public static final byte RESPONSE = 1;
+
+    /**
+     * 批量请求，消息体由多个完整的请求帧拼接而成
+     */
+    public static final byte BATCH_REQUEST = 2;
+
+    /**
+     * 批量响应，消息体由多个完整的响应帧拼接而成
+     */
+    public static final byte BATCH_RESPONSE = 3;
+
+    /**
+     * 是否为批量消息
+     */
+    public static boolean isBatch(byte type) {
+        return type == BATCH_REQUEST || type == BATCH_RESPONSE;
+    }
+}
@@ -0,0 +1,40 @@
+package com.lzy.rpc.protocol;
+
+/**
+ * 协议常量
+ *
+ * 消息头格式（共18字节）：
+ * | 魔数 1 | 版本 1 | 序列化器 1 | 压缩器 1 | 消息类型 1 | 状态 1 | 请求id 8 | 消息体长度 4 |
+ */
+public class ProtocolConstant {
+
+    /**
+     * 魔数，用于快速识别非法连接
+     */
+    public static final byte MAGIC = (byte) 0x6C;
+
+    /**
+     * 协议版本号
+     */
+    public static final byte VERSION = 2;
+
+    /**
+     * 消息头长度
+     */
+    public static final int HEADER_LENGTH = 18;
+
+    /**
+     * 消息体长度字段在消息头中的偏移量
+     */
+    public static final int LENGTH_FIELD_OFFSET = 14;
+
+    /**
+     * 消息体长度字段的长度
+     */
+    public static final int LENGTH_FIELD_LENGTH = 4;
+
+    /**
+     * 单个消息帧的最大长度
+     */
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+}
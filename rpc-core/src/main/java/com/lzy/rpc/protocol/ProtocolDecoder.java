@@ -0,0 +1,166 @@
+package com.lzy.rpc.protocol;
+
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.compress.Compressor;
+import com.lzy.rpc.compress.CompressorFactory;
+import com.lzy.rpc.compress.CompressorPolicy;
+import com.lzy.rpc.util.JdkSerializer;
+import com.lzy.rpc.util.Serializer;
+import com.lzy.rpc.util.SerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 协议解码器，按消息头中的长度字段拆出完整帧后解析为ProtocolMessage
+ * 该类有状态（半包缓存），每个连接需单独创建
+ */
+@Slf4j
+public class ProtocolDecoder extends LengthFieldBasedFrameDecoder {
+
+    /**
+     * 对方使用了本端不支持的序列化器时，以JDK序列化器回复错误
+     */
+    private static final Serializer fallbackSerializer = new JdkSerializer();
+
+    public ProtocolDecoder() {
+        super(ProtocolConstant.MAX_FRAME_LENGTH, ProtocolConstant.LENGTH_FIELD_OFFSET,
+                ProtocolConstant.LENGTH_FIELD_LENGTH, 0, 0);
+    }
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        /* 不同版本的消息头格式不同，在按长度字段拆帧之前检查版本，避免按错误的格式解析 */
+        if (in.readableBytes() >= 2 && in.getByte(in.readerIndex() + 1) != ProtocolConstant.VERSION) {
+            log.error("unsupported protocol version {} from {}, expected {}, close the connection",
+                    in.getByte(in.readerIndex() + 1), ctx.channel().remoteAddress(), ProtocolConstant.VERSION);
+            in.skipBytes(in.readableBytes());
+            ctx.close();
+            return null;
+        }
+        ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+        if (frame == null) {
+            return null;
+        }
+        try {
+            return this.readMessage(ctx, frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * 从帧中读取一条消息，批量消息的消息体解析为内部消息列表
+     */
+    private ProtocolMessage<?> readMessage(ChannelHandlerContext ctx, ByteBuf frame) {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(frame.readByte());
+        if (header.getMagic() != ProtocolConstant.MAGIC) {
+            throw new CorruptedFrameException("illegal magic: " + header.getMagic());
+        }
+        header.setVersion(frame.readByte());
+        header.setSerializer(frame.readByte());
+        header.setCompressor(frame.readByte());
+        header.setType(frame.readByte());
+        header.setStatus(frame.readByte());
+        header.setRequestId(frame.readLong());
+        header.setBodyLength(frame.readInt());
+        if (header.getBodyLength() < 0 || header.getBodyLength() > frame.readableBytes()) {
+            throw new CorruptedFrameException("illegal body length: " + header.getBodyLength());
+        }
+        /* 消息体为帧的切片，与帧共享内存 */
+        ByteBuf body = frame.readSlice(header.getBodyLength());
+        long startTime = System.nanoTime();
+        ProtocolMessage<?> message = this.readBody(ctx, header, body);
+        message.setDecodeNanos(System.nanoTime() - startTime);
+        return message;
+    }
+
+    private ProtocolMessage<?> readBody(ChannelHandlerContext ctx, ProtocolMessage.Header header, ByteBuf body) {
+        if (header.getCompressor() == CompressorPolicy.NONE_ID) {
+            return this.deserializeBody(ctx, header, body);
+        }
+        ByteBuf decompressed = this.decompress(ctx, header, body);
+        if (decompressed == null) {
+            return new ProtocolMessage<>(header, null);
+        }
+        try {
+            return this.deserializeBody(ctx, header, decompressed);
+        } finally {
+            decompressed.release();
+        }
+    }
+
+    private ProtocolMessage<?> deserializeBody(ChannelHandlerContext ctx, ProtocolMessage.Header header, ByteBuf body) {
+        if (MessageType.isBatch(header.getType())) {
+            List<ProtocolMessage<?>> messages = new ArrayList<>();
+            while (body.isReadable()) {
+                messages.add(this.readMessage(ctx, body));
+            }
+            return new ProtocolMessage<>(header, messages);
+        }
+        return new ProtocolMessage<>(header, this.deserialize(header, body));
+    }
+
+    /**
+     * 按消息头中的压缩器解压消息体，解压失败时返回null并标记状态，交由业务处理器回复
+     * 批量消息无法拆分出各条请求，解压失败时视为非法帧
+     */
+    private ByteBuf decompress(ChannelHandlerContext ctx, ProtocolMessage.Header header, ByteBuf body) {
+        Compressor compressor = CompressorFactory.getCompressor(header.getCompressor());
+        ByteBuf decompressed = ctx.alloc().directBuffer();
+        try {
+            if (compressor == null) {
+                throw new IllegalArgumentException("unknown compressor: " + header.getCompressor());
+            }
+            compressor.decompress(body, decompressed, ProtocolConstant.MAX_FRAME_LENGTH);
+            header.setCompressor(CompressorPolicy.NONE_ID);
+            return decompressed;
+        } catch (Exception e) {
+            decompressed.release();
+            if (MessageType.isBatch(header.getType())) {
+                throw new CorruptedFrameException(e);
+            }
+            e.printStackTrace();
+            header.setStatus(header.getType() == MessageType.REQUEST ? MessageStatus.BAD_REQUEST : MessageStatus.BAD_RESPONSE);
+            return null;
+        }
+    }
+
+    /**
+     * 按消息头中的序列化器和消息类型反序列化消息体，解析失败时消息体为null并标记状态，交由业务处理器回复
+     */
+    private Object deserialize(ProtocolMessage.Header header, ByteBuf body) {
+        if (!body.isReadable()) {
+            return null;
+        }
+        Serializer serializer = SerializerFactory.getSerializer(header.getSerializer());
+        if (serializer == null) {
+            header.setSerializer(fallbackSerializer.getId());
+            header.setStatus(header.getType() == MessageType.REQUEST ? MessageStatus.BAD_REQUEST : MessageStatus.BAD_RESPONSE);
+            return null;
+        }
+        try {
+            switch (header.getType()) {
+                case MessageType.REQUEST:
+                    return serializer.deserialize(body, RpcRequest.class);
+                case MessageType.RESPONSE:
+                    return serializer.deserialize(body, RpcResponse.class);
+                default:
+                    throw new CorruptedFrameException("unknown message type: " + header.getType());
+            }
+        } catch (CorruptedFrameException e) {
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            header.setStatus(header.getType() == MessageType.REQUEST ? MessageStatus.BAD_REQUEST : MessageStatus.BAD_RESPONSE);
+            return null;
+        }
+    }
+}
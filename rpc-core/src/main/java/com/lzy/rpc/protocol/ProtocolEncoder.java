@@ -0,0 +1,97 @@
+package com.lzy.rpc.protocol;
+
+import com.lzy.rpc.compress.Compressor;
+import com.lzy.rpc.compress.CompressorPolicy;
+import com.lzy.rpc.util.Serializer;
+import com.lzy.rpc.util.SerializerFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+/**
+ * 协议编码器，将ProtocolMessage编码为 消息头+消息体 的二进制帧
+ * 消息体直接序列化到netty分配的池化缓冲区中，不产生中间字节数组
+ * 配置了压缩器时，不小于阈值的消息体压缩后替换原消息体，压缩无收益时保持原样
+ */
+@ChannelHandler.Sharable
+public class ProtocolEncoder extends MessageToByteEncoder<ProtocolMessage<?>> {
+
+    /**
+     * 压缩器，为null时不压缩
+     */
+    private final Compressor compressor;
+
+    /**
+     * 压缩阈值（单位字节）
+     */
+    private final int compressThreshold;
+
+    public ProtocolEncoder() {
+        this(null, 0);
+    }
+
+    public ProtocolEncoder(Compressor compressor, int compressThreshold) {
+        this.compressor = compressor;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ProtocolMessage<?> message, ByteBuf out) throws Exception {
+        ProtocolEncoder.writeMessage(message, out, this.compressor, this.compressThreshold);
+    }
+
+    /**
+     * 将一条消息写入out，批量消息的消息体为依次写入的各条内部消息
+     * 批量消息整体压缩，内部消息不再单独压缩
+     */
+    private static void writeMessage(ProtocolMessage<?> message, ByteBuf out, Compressor compressor, int compressThreshold) throws Exception {
+        ProtocolMessage.Header header = message.getHeader();
+        boolean batch = MessageType.isBatch(header.getType());
+        /* 使用消息头中标识的序列化器 */
+        Serializer serializer = SerializerFactory.getSerializer(header.getSerializer());
+        if (serializer == null && !batch) {
+            throw new EncoderException("unknown serializer: " + header.getSerializer());
+        }
+        out.writeByte(header.getMagic());
+        out.writeByte(header.getVersion());
+        out.writeByte(header.getSerializer());
+        int compressorIndex = out.writerIndex();
+        out.writeByte(CompressorPolicy.NONE_ID);
+        out.writeByte(header.getType());
+        out.writeByte(header.getStatus());
+        out.writeLong(header.getRequestId());
+        /* 先占位消息体长度，消息体直接序列化到out中，写完后回填长度 */
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        long startTime = System.nanoTime();
+        if (batch) {
+            for (ProtocolMessage<?> inner : ProtocolMessage.messagesOf(message)) {
+                ProtocolEncoder.writeMessage(inner, out, null, 0);
+            }
+        } else if (message.getBody() != null) {
+            serializer.serialize(message.getBody(), out);
+        }
+        header.setCompressor(CompressorPolicy.NONE_ID);
+        int bodyIndex = lengthIndex + ProtocolConstant.LENGTH_FIELD_LENGTH;
+        int bodyLength = out.writerIndex() - bodyIndex;
+        if (compressor != null && bodyLength > 0 && bodyLength >= compressThreshold) {
+            ByteBuf compressed = out.alloc().directBuffer(bodyLength);
+            try {
+                compressor.compress(out.slice(bodyIndex, bodyLength), compressed);
+                if (compressed.readableBytes() < bodyLength) {
+                    out.writerIndex(bodyIndex);
+                    out.writeBytes(compressed);
+                    header.setCompressor(compressor.getId());
+                    out.setByte(compressorIndex, compressor.getId());
+                }
+            } finally {
+                compressed.release();
+            }
+        }
+        header.setBodyLength(out.writerIndex() - lengthIndex - ProtocolConstant.LENGTH_FIELD_LENGTH);
+        out.setInt(lengthIndex, header.getBodyLength());
+        message.setEncodeNanos(System.nanoTime() - startTime);
+    }
+}
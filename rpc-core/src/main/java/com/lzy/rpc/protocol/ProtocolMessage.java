@@ -0,0 +1,94 @@
+package com.lzy.rpc.protocol;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 协议消息，由消息头和消息体组成
+ */
+@Data
+@NoArgsConstructor
+public class ProtocolMessage<T> {
+
+    /**
+     * 消息头
+     */
+    private Header header;
+
+    /**
+     * 消息体（请求或响应对象）
+     */
+    private T body;
+
+    /**
+     * 序列化（及压缩）消息体的耗时（单位纳秒），由编码器记录，不参与编码
+     */
+    private long encodeNanos;
+
+    /**
+     * 解析（及解压）消息体的耗时（单位纳秒），由解码器记录
+     */
+    private long decodeNanos;
+
+    public ProtocolMessage(Header header, T body) {
+        this.header = header;
+        this.body = body;
+    }
+
+    /**
+     * 批量消息的内部消息列表，消息体由编解码器按消息类型写入，类型由消息头保证
+     */
+    @SuppressWarnings("unchecked")
+    public static List<ProtocolMessage<?>> messagesOf(ProtocolMessage<?> batch) {
+        return (List<ProtocolMessage<?>>) batch.getBody();
+    }
+
+    /**
+     * 消息头
+     */
+    @Data
+    public static class Header {
+
+        /**
+         * 魔数
+         */
+        private byte magic = ProtocolConstant.MAGIC;
+
+        /**
+         * 版本号
+         */
+        private byte version = ProtocolConstant.VERSION;
+
+        /**
+         * 序列化器标识
+         */
+        private byte serializer;
+
+        /**
+         * 压缩器标识，消息体未压缩时为0，由编码器写入
+         */
+        private byte compressor;
+
+        /**
+         * 消息类型
+         */
+        private byte type;
+
+        /**
+         * 消息状态
+         */
+        private byte status = MessageStatus.OK;
+
+        /**
+         * 请求id，用于在同一连接上匹配请求与响应
+         */
+        private long requestId;
+
+        /**
+         * 消息体长度，由编码器写入
+         */
+        private int bodyLength;
+    }
+}
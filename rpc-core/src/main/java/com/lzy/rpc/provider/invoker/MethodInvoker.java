@@ -0,0 +1,99 @@
+package com.lzy.rpc.provider.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 方法调用器
+ * 服务启动时将服务方法预编译为绑定了服务对象的MethodHandle，调用时无需再查找方法和做访问检查
+ */
+public class MethodInvoker {
+
+    private static final MethodType INVOKE_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    /**
+     * 参数类型列表
+     */
+    private final Class<?>[] parameterTypes;
+
+    /**
+     * 返回值类型
+     */
+    private final Class<?> returnType;
+
+    /**
+     * 异步方法（返回CompletionStage）结果的类型，无法确定时为Object，同步方法为null
+     */
+    private final Class<?> asyncResultType;
+
+    /**
+     * 调用句柄，类型为 (Object[])Object
+     */
+    private final MethodHandle handle;
+
+    public MethodInvoker(Object service, Method method) throws IllegalAccessException {
+        this.parameterTypes = method.getParameterTypes();
+        this.returnType = method.getReturnType();
+        this.asyncResultType = CompletionStage.class.isAssignableFrom(this.returnType)
+                ? MethodInvoker.resolveAsyncResultType(method.getGenericReturnType()) : null;
+        if (!method.isAccessible()) {
+            method.setAccessible(true);
+        }
+        this.handle = MethodHandles.lookup().unreflect(method)
+                .bindTo(service)
+                .asSpreader(Object[].class, this.parameterTypes.length)
+                .asType(INVOKE_TYPE);
+    }
+
+    /**
+     * 调用方法，服务方法抛出的异常原样抛出
+     */
+    public Object invoke(Object[] args) throws Throwable {
+        return (Object) this.handle.invokeExact(args == null ? EMPTY_ARGS : args);
+    }
+
+    /**
+     * 解析CompletableFuture<T>等返回类型中的T，序列化器按该类型还原异步方法的结果
+     */
+    private static Class<?> resolveAsyncResultType(Type genericReturnType) {
+        if (!(genericReturnType instanceof ParameterizedType)) {
+            return Object.class;
+        }
+        Type[] arguments = ((ParameterizedType) genericReturnType).getActualTypeArguments();
+        if (arguments.length != 1) {
+            return Object.class;
+        }
+        Type argument = arguments[0];
+        if (argument instanceof Class) {
+            return (Class<?>) argument;
+        }
+        if (argument instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) argument).getRawType();
+        }
+        if (argument instanceof GenericArrayType) {
+            return Object[].class;
+        }
+        /* 通配符和类型变量无法确定具体类型 */
+        return Object.class;
+    }
+
+    public Class<?>[] getParameterTypes() {
+        return this.parameterTypes;
+    }
+
+    public Class<?> getReturnType() {
+        return this.returnType;
+    }
+
+    public Class<?> getAsyncResultType() {
+        return this.asyncResultType;
+    }
+}
@@ -0,0 +1,65 @@
+package com.lzy.rpc.provider.invoker;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 服务调用表
+ * 只收录暴露的服务接口（含其父接口）中的方法，服务类实现的其他接口中的方法不能被远程调用
+ * 结构为：方法名:同名方法的调用器（重载方法按参数类型区分）
+ */
+public class ServiceInvoker {
+
+    private final Map<String, MethodInvoker[]> invokers = new HashMap<>();
+
+    /**
+     * @param serviceInterface 暴露的服务接口
+     * @param service          服务对象，必须实现serviceInterface
+     */
+    public ServiceInvoker(Class<?> serviceInterface, Object service) throws IllegalAccessException {
+        if (!serviceInterface.isInterface() || !serviceInterface.isInstance(service)) {
+            throw new IllegalArgumentException(service.getClass().getName() + " does not implement " + serviceInterface.getName());
+        }
+        Map<String, Map<String, MethodInvoker>> methods = new HashMap<>();
+        for (Method method : serviceInterface.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            /* 同一方法可能由多个父接口声明，按签名去重 */
+            methods.computeIfAbsent(method.getName(), name -> new HashMap<>())
+                    .putIfAbsent(Arrays.toString(method.getParameterTypes()), new MethodInvoker(service, method));
+        }
+        for (Map.Entry<String, Map<String, MethodInvoker>> entry : methods.entrySet()) {
+            this.invokers.put(entry.getKey(), entry.getValue().values().toArray(new MethodInvoker[0]));
+        }
+    }
+
+    /**
+     * 按方法名和参数类型查找调用器
+     *
+     * @return 不存在时返回null
+     */
+    public MethodInvoker getInvoker(String methodName, Class<?>[] parameterTypes) {
+        MethodInvoker[] candidates = this.invokers.get(methodName);
+        if (candidates == null) {
+            return null;
+        }
+        for (MethodInvoker invoker : candidates) {
+            if (Arrays.equals(invoker.getParameterTypes(), parameterTypes)) {
+                return invoker;
+            }
+        }
+        /* 无参方法的参数类型可能为null */
+        if (parameterTypes == null) {
+            for (MethodInvoker invoker : candidates) {
+                if (invoker.getParameterTypes().length == 0) {
+                    return invoker;
+                }
+            }
+        }
+        return null;
+    }
+}
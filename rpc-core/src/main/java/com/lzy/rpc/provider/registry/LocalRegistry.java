@@ -1,5 +1,7 @@
 package com.lzy.rpc.provider.registry;
 
+import com.lzy.rpc.provider.invoker.ServiceInvoker;
+
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -13,10 +15,22 @@ public class LocalRegistry {
      */
     private static final Map<String, Object> map = new ConcurrentHashMap<>();
 
+    /**
+     * 服务调用表，注册服务时生成，结构为：服务名称:调用表
+     */
+    private static final Map<String, ServiceInvoker> invokerMap = new ConcurrentHashMap<>();
+
     /**
      * 注册服务
+     *
+     * @param serviceInterface 暴露的服务接口，只有该接口中的方法可以被远程调用
      */
-    public static void register(String serviceName, Object object) {
+    public static void register(String serviceName, Class<?> serviceInterface, Object object) {
+        try {
+            invokerMap.put(serviceName, new ServiceInvoker(serviceInterface, object));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法生成服务调用表: " + serviceName, e);
+        }
         map.put(serviceName, object);
     }
 
@@ -30,12 +44,23 @@ public class LocalRegistry {
         return map.get(serviceName);
     }
 
+    /**
+     * 获取服务调用表
+     *
+     * @param serviceName
+     * @return
+     */
+    public static ServiceInvoker getInvoker(String serviceName) {
+        return invokerMap.get(serviceName);
+    }
+
     /**
      * 删除服务
      *
      * @param serviceName
      */
     public static void remove(String serviceName) {
+        invokerMap.remove(serviceName);
         map.remove(serviceName);
     }
 }
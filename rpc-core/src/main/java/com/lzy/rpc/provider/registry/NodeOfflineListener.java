@@ -0,0 +1,16 @@
+package com.lzy.rpc.provider.registry;
+
+/**
+ * 节点下线监听器
+ * 节点地址不再出现在任何服务的节点列表中时回调，用于释放该节点的连接、统计等资源
+ */
+@FunctionalInterface
+public interface NodeOfflineListener {
+
+    /**
+     * 节点下线
+     *
+     * @param address 下线节点的地址
+     */
+    void onOffline(String address);
+}
@@ -0,0 +1,33 @@
+package com.lzy.rpc.provider.registry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 节点下线监听器列表，由注册中心实现在节点下线时通知
+ */
+@Slf4j
+final class OfflineListeners {
+
+    private static final List<NodeOfflineListener> listeners = new CopyOnWriteArrayList<>();
+
+    private OfflineListeners() {
+    }
+
+    static void add(NodeOfflineListener listener) {
+        listeners.add(listener);
+    }
+
+    static void fire(String address) {
+        for (NodeOfflineListener listener : listeners) {
+            /* 单个监听器失败不影响其他监听器释放资源 */
+            try {
+                listener.onOffline(address);
+            } catch (RuntimeException e) {
+                log.warn("node offline listener failed for {}", address, e);
+            }
+        }
+    }
+}
@@ -28,6 +28,7 @@ public interface Registry {
 
     /**
      * 服务发现（获取某服务的所有节点，消费端）
+     * 返回的列表不可修改，节点未变化时返回同一列表对象
      */
     List<ServiceInfo> serviceDiscovery(String serviceKey);
 
@@ -35,4 +36,19 @@ public interface Registry {
      * 服务销毁
      */
     void destroy();
+
+    /**
+     * 订阅节点下线事件（消费端），节点地址不再出现在任何服务的节点列表中时回调
+     * 持有节点级资源的组件在首次使用时订阅，下线时自行释放
+     */
+    static void addOfflineListener(NodeOfflineListener listener) {
+        OfflineListeners.add(listener);
+    }
+
+    /**
+     * 通知节点下线，由注册中心实现调用
+     */
+    static void fireOffline(String address) {
+        OfflineListeners.fire(address);
+    }
 }
@@ -0,0 +1,107 @@
+package com.lzy.rpc.provider.registry;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import com.lzy.rpc.anno.RpcService;
+import lombok.extern.slf4j.Slf4j;
+import org.reflections.Reflections;
+import org.reflections.util.ConfigurationBuilder;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 查找服务端需要暴露的服务类
+ * 优先读取rpc-processor在编译时生成的服务索引，再扫描配置的包；
+ * 两者都没有时才扫描整个类路径，依赖较多时会明显拖慢启动
+ */
+@Slf4j
+public class ServiceScanner {
+
+    /**
+     * 服务索引路径，每个jar包中可以有一份，格式为 实现类=服务接口
+     */
+    public static final String SERVICE_INDEX = "META-INF/rpc/services.index";
+
+    /**
+     * 查找服务类
+     *
+     * @param scanPackages 需要扫描的包，多个用逗号分隔
+     * @return 服务类与其服务接口，结构为：实现类:服务接口
+     */
+    public static Map<Class<?>, Class<?>> scan(String scanPackages) {
+        Map<Class<?>, Class<?>> services = new LinkedHashMap<>();
+        List<URL> resources = ResourceUtil.getResources(SERVICE_INDEX);
+        for (URL resource : resources) {
+            readIndex(resource, services);
+        }
+        List<String> packages = new ArrayList<>(StrUtil.splitTrim(scanPackages, ','));
+        if (packages.isEmpty() && !resources.isEmpty()) {
+            return services;
+        }
+        if (packages.isEmpty()) {
+            log.warn("no {} found and rpc.server.scanPackages is not configured, scan the whole classpath", SERVICE_INDEX);
+            packages.add("");
+        }
+        Reflections reflections = new Reflections(new ConfigurationBuilder().forPackages(packages.toArray(new String[0])));
+        for (Class<?> clazz : reflections.getTypesAnnotatedWith(RpcService.class, true)) {
+            if (services.containsKey(clazz)) {
+                continue;
+            }
+            try {
+                services.put(clazz, interfaceOf(clazz));
+            } catch (IllegalStateException e) {
+                log.error("skip service class {}: {}", clazz.getName(), e.getMessage());
+            }
+        }
+        return services;
+    }
+
+    /**
+     * 服务类暴露的服务接口，优先使用注解指定的接口，否则使用直接实现的唯一接口
+     */
+    public static Class<?> interfaceOf(Class<?> clazz) {
+        RpcService rpcService = clazz.getAnnotation(RpcService.class);
+        if (rpcService != null && rpcService.interfaceClass() != void.class) {
+            Class<?> interfaceClass = rpcService.interfaceClass();
+            if (!interfaceClass.isInterface() || !interfaceClass.isAssignableFrom(clazz)) {
+                throw new IllegalStateException("interfaceClass不是该类实现的接口: " + interfaceClass.getName());
+            }
+            return interfaceClass;
+        }
+        Class<?>[] interfaces = clazz.getInterfaces();
+        if (interfaces.length != 1) {
+            throw new IllegalStateException(interfaces.length == 0
+                    ? "没有实现任何接口" : "实现了多个接口，需要用interfaceClass指定暴露的服务接口");
+        }
+        return interfaces[0];
+    }
+
+    /**
+     * 读取一份服务索引，类加载失败的条目跳过，不影响其他服务
+     */
+    private static void readIndex(URL resource, Map<Class<?>, Class<?>> services) {
+        try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                String[] strArray = line.trim().split("=");
+                if (line.startsWith("#") || strArray.length != 2) {
+                    continue;
+                }
+                try {
+                    services.put(Class.forName(strArray[0]), Class.forName(strArray[1]));
+                } catch (ClassNotFoundException | LinkageError e) {
+                    log.error("skip service index entry {}: {}", line, e.toString());
+                }
+            }
+        } catch (Exception e) {
+            log.error("failed to read service index {}", resource, e);
+        }
+    }
+}
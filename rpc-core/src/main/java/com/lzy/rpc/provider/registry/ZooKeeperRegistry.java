@@ -6,14 +6,21 @@ import com.lzy.rpc.config.RegistryConfig;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.curator.x.discovery.ServiceCache;
 import org.apache.curator.x.discovery.ServiceDiscovery;
 import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
 import org.apache.curator.x.discovery.ServiceInstance;
 import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
+import org.apache.curator.x.discovery.details.ServiceCacheListener;
 
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class ZooKeeperRegistry implements Registry{
@@ -33,6 +40,17 @@ public class ZooKeeperRegistry implements Registry{
      */
     private static final String ZK_ROOT_PATH = "/rpc/zk";
 
+    /**
+     * 消费端的服务节点缓存，通过zookeeper的watch机制增量更新，结构为：服务名称:缓存
+     */
+    private final Map<String, ServiceCache<ServiceInfo>> serviceCaches = new ConcurrentHashMap<>();
+
+    /**
+     * 服务节点列表快照，只在节点变化时整体替换，结构为：服务名称:不可变的节点列表
+     * 负载均衡器可通过列表对象是否变化判断节点是否变化
+     */
+    private final Map<String, List<ServiceInfo>> snapshots = new ConcurrentHashMap<>();
+
     @Override
     public void init() {
         RegistryConfig registryConfig = RpcApplication.rpcConfig.getRegistry();
@@ -97,31 +115,96 @@ public class ZooKeeperRegistry implements Registry{
         }
     }
 
+    /**
+     * 服务发现，直接读取本地快照，不访问zookeeper
+     * 首次发现某服务时建立缓存并完成初次加载，之后由watch回调更新快照
+     */
     @Override
     public List<ServiceInfo> serviceDiscovery(String serviceKey) {
+        List<ServiceInfo> snapshot = this.snapshots.get(serviceKey);
+        if (snapshot != null) {
+            return snapshot;
+        }
         try {
-//            Collection<ServiceInstance<ServiceInfo>> serviceInstances = serviceDiscovery.queryForInstances(serviceKey);
-//            ServiceInstance<ServiceInfo>[] array = serviceInstances.stream().toArray(ServiceInstance[]::new);
-//            List<ServiceInfo> list = new ArrayList<>();
-//            for(int i = 0;i<array.length;i++){
-//                list.add(array[i].getPayload());
-//            }
-            // 查询服务信息
-            Collection<ServiceInstance<ServiceInfo>> serviceInstanceList = serviceDiscovery.queryForInstances(serviceKey);
-
-            // 解析服务信息
-            List<ServiceInfo> list = serviceInstanceList.stream()
-                    .map(ServiceInstance::getPayload)
-                    .collect(Collectors.toList());
-            return list;
+            this.serviceCaches.computeIfAbsent(serviceKey, this::buildServiceCache);
         } catch (Exception e) {
             e.printStackTrace();
         }
-        return null;
+        return this.snapshots.get(serviceKey);
+    }
+
+    /**
+     * 建立服务节点缓存并注册变化监听
+     */
+    private ServiceCache<ServiceInfo> buildServiceCache(String serviceKey) {
+        ServiceCache<ServiceInfo> serviceCache = this.serviceDiscovery.serviceCacheBuilder()
+                .name(serviceKey)
+                .build();
+        serviceCache.addListener(new ServiceCacheListener() {
+            @Override
+            public void cacheChanged() {
+                ZooKeeperRegistry.this.refreshSnapshot(serviceKey, serviceCache);
+            }
+
+            @Override
+            public void stateChanged(CuratorFramework client, ConnectionState newState) {
+                /* 重新连接后节点可能已变化，刷新一次 */
+                if (newState == ConnectionState.RECONNECTED) {
+                    ZooKeeperRegistry.this.refreshSnapshot(serviceKey, serviceCache);
+                }
+            }
+        });
+        try {
+            serviceCache.start();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        this.refreshSnapshot(serviceKey, serviceCache);
+        return serviceCache;
+    }
+
+    /**
+     * 用缓存中的节点生成新的不可变快照
+     */
+    private void refreshSnapshot(String serviceKey, ServiceCache<ServiceInfo> serviceCache) {
+        List<ServiceInfo> list = serviceCache.getInstances().stream()
+                .map(ServiceInstance::getPayload)
+                .collect(Collectors.toList());
+        List<ServiceInfo> previous = this.snapshots.put(serviceKey, Collections.unmodifiableList(list));
+        if (previous != null) {
+            this.notifyOffline(previous);
+        }
+    }
+
+    /**
+     * 通知已下线的节点，节点地址仍出现在任一服务的节点列表中时不算下线
+     *
+     * @param previous 更新前的节点列表
+     */
+    private void notifyOffline(List<ServiceInfo> previous) {
+        Set<String> online = new HashSet<>();
+        for (List<ServiceInfo> snapshot : this.snapshots.values()) {
+            for (ServiceInfo serviceInfo : snapshot) {
+                online.add(serviceInfo.getAddress());
+            }
+        }
+        for (ServiceInfo serviceInfo : previous) {
+            String address = serviceInfo.getAddress();
+            if (!online.contains(address)) {
+                Registry.fireOffline(address);
+            }
+        }
     }
 
     @Override
     public void destroy() {
+        for (ServiceCache<ServiceInfo> serviceCache : this.serviceCaches.values()) {
+            try {
+                serviceCache.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
         if(this.client!=null){
             this.client.close();
         }
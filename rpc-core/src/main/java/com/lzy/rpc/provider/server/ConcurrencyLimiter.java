@@ -0,0 +1,106 @@
+package com.lzy.rpc.provider.server;
+
+import com.lzy.rpc.config.ServerConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 服务端并发限制，限制同时处理（排队和执行中）的请求数，包括全局上限和每个服务的上限
+ * 超出上限的请求不进入业务线程池，直接回复过载，由客户端转到其他节点重试
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * 全局上限，0表示不限制
+     */
+    private final int maxConcurrency;
+
+    private final AtomicInteger concurrency = new AtomicInteger();
+
+    /**
+     * 每个服务的计数器，结构为：服务名称:[上限, 当前数]，只包含配置了上限的服务
+     */
+    private final Map<String, Counter> counters = new HashMap<>();
+
+    /**
+     * @throws IllegalArgumentException 全局上限为负数，或每个服务的上限配置项缺少名称、上限不是正整数时抛出，
+     *                                  异常信息中包含出错的配置项
+     */
+    public ConcurrencyLimiter(ServerConfig serverConfig) {
+        this.maxConcurrency = serverConfig.getMaxConcurrency();
+        if (this.maxConcurrency < 0) {
+            throw new IllegalArgumentException("invalid rpc.server.maxConcurrency " + this.maxConcurrency
+                    + ", expected 0 (unlimited) or a positive limit");
+        }
+        String config = serverConfig.getServiceConcurrency();
+        if (config != null) {
+            for (String entry : config.split(",")) {
+                if (entry.trim().isEmpty()) {
+                    continue;
+                }
+                int index = entry.indexOf('=');
+                String key = index < 0 ? entry.trim() : entry.substring(0, index).trim();
+                int limit = 0;
+                if (index > 0 && !key.isEmpty()) {
+                    try {
+                        limit = Integer.parseInt(entry.substring(index + 1).trim());
+                    } catch (NumberFormatException e) {
+                        /* 按非法值处理 */
+                    }
+                }
+                if (key.isEmpty() || limit <= 0) {
+                    throw new IllegalArgumentException("invalid rpc.server.serviceConcurrency entry '" + entry.trim()
+                            + "' of '" + key + "', expected <interface>=<positive limit>");
+                }
+                this.counters.put(key, new Counter(limit));
+            }
+        }
+    }
+
+    /**
+     * 请求开始处理前获取许可
+     *
+     * @return 是否允许处理，返回true时处理结束后必须调用release
+     */
+    public boolean tryAcquire(String serviceName) {
+        if (this.maxConcurrency > 0 && this.concurrency.incrementAndGet() > this.maxConcurrency) {
+            this.concurrency.decrementAndGet();
+            return false;
+        }
+        Counter counter = serviceName == null ? null : this.counters.get(serviceName);
+        if (counter != null && counter.count.incrementAndGet() > counter.limit) {
+            counter.count.decrementAndGet();
+            if (this.maxConcurrency > 0) {
+                this.concurrency.decrementAndGet();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 请求处理结束（已回复响应）
+     */
+    public void release(String serviceName) {
+        if (this.maxConcurrency > 0) {
+            this.concurrency.decrementAndGet();
+        }
+        Counter counter = serviceName == null ? null : this.counters.get(serviceName);
+        if (counter != null) {
+            counter.count.decrementAndGet();
+        }
+    }
+
+    private static class Counter {
+
+        private final int limit;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Counter(int limit) {
+            this.limit = limit;
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package com.lzy.rpc.provider.server;
 
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.compress.CompressorFactory;
+import com.lzy.rpc.config.ServerConfig;
+import com.lzy.rpc.protocol.ProtocolDecoder;
+import com.lzy.rpc.protocol.ProtocolEncoder;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
@@ -8,15 +14,34 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpServerCodec;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class NettyRpcServer {
 
+    /**
+     * 监听端口的通道，启动前为null
+     */
+    private volatile Channel channel;
+
     public void start(int port){
+        this.start(port, null);
+    }
+
+    /**
+     * 启动服务器并阻塞直到服务器关闭
+     *
+     * @param onStarted 端口绑定成功后执行（如向注册中心注册），确保客户端发现节点时已可连接
+     */
+    public void start(int port, Runnable onStarted){
+        ServerConfig serverConfig = RpcApplication.rpcConfig == null
+                ? new ServerConfig() : RpcApplication.rpcConfig.getServer();
+        /* 所有连接共享并发限制，在创建线程和绑定端口之前解析配置，配置错误时启动即失败 */
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(serverConfig);
         /* 创建bossGroup和workeGroup */
         EventLoopGroup bossGroup = new NioEventLoopGroup(1);
         EventLoopGroup workerGroup = new NioEventLoopGroup();
+        AtomicInteger connections = new AtomicInteger();
         try {
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             serverBootstrap.group(bossGroup, workerGroup)
@@ -24,18 +49,30 @@ public class NettyRpcServer {
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                                       @Override
                                       protected void initChannel(SocketChannel ch) throws Exception {
+                                          /* 超出最大连接数时立即关闭新连接 */
+                                          int count = connections.incrementAndGet();
+                                          ch.closeFuture().addListener(future -> connections.decrementAndGet());
+                                          if (serverConfig.getMaxConnections() > 0 && count > serverConfig.getMaxConnections()) {
+                                              ch.close();
+                                              return;
+                                          }
                                           ChannelPipeline pipeline = ch.pipeline();
-                                          /* 加入一个netty提供的编/解码器 */
-                                          pipeline.addLast(new HttpServerCodec());
-                                          /* 用于将HTTP消息片段聚合为完整的FullHttpRequest或FullHttpResponse */
-                                          pipeline.addLast(new HttpObjectAggregator(65536));
+                                          /* 自定义协议的解码器，按长度字段拆包 */
+                                          pipeline.addLast(new ProtocolDecoder());
+                                          /* 自定义协议的编码器 */
+                                          pipeline.addLast(new ProtocolEncoder(CompressorFactory.getCompressor(serverConfig.getCompressor()),
+                                                  serverConfig.getCompressThreshold()));
                                           /* 自定义的业务处理器 */
-                                          pipeline.addLast(new NettyServerHandler());
+                                          pipeline.addLast(new NettyServerHandler(limiter, serverConfig.getMaxPendingPerConnection()));
                                       }
                                   }
                     );
             /* 绑定ip和端口号 */
             ChannelFuture channelFuture = serverBootstrap.bind(port).sync();
+            this.channel = channelFuture.channel();
+            if (onStarted != null) {
+                onStarted.run();
+            }
             channelFuture.channel().closeFuture().sync();
         } catch (Exception e) {
             e.printStackTrace();
@@ -44,4 +81,14 @@ public class NettyRpcServer {
             workerGroup.shutdownGracefully();
         }
     }
+
+    /**
+     * 关闭服务器，start方法随之返回（用于在进程内启动的服务器，如基准测试）
+     */
+    public void stop(){
+        Channel channel = this.channel;
+        if (channel != null) {
+            channel.close();
+        }
+    }
 }
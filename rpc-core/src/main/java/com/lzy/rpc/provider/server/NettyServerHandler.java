@@ -1,48 +1,322 @@
 package com.lzy.rpc.provider.server;
 
+import com.lzy.rpc.RpcApplication;
 import com.lzy.rpc.bean.RpcRequest;
 import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.context.RpcContext;
+import com.lzy.rpc.exception.RpcException;
+import com.lzy.rpc.metrics.MethodMetrics;
+import com.lzy.rpc.metrics.MetricsRegistry;
+import com.lzy.rpc.protocol.MessageStatus;
+import com.lzy.rpc.protocol.MessageType;
+import com.lzy.rpc.protocol.ProtocolMessage;
+import com.lzy.rpc.provider.invoker.MethodInvoker;
+import com.lzy.rpc.provider.invoker.ServiceInvoker;
 import com.lzy.rpc.provider.registry.LocalRegistry;
-import com.lzy.rpc.util.JdkSerializer;
-import com.lzy.rpc.util.Serializer;
-import io.netty.buffer.ByteBuf;
+import com.lzy.rpc.provider.server.dispatcher.Dispatcher;
+import com.lzy.rpc.trace.CallTrace;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.handler.codec.http.*;
 
-import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
-public class NettyServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+/**
+ * 服务端处理器，每个连接一个实例
+ */
+public class NettyServerHandler extends SimpleChannelInboundHandler<ProtocolMessage<?>> {
 
-    private static final Serializer serializer = new JdkSerializer();
+    /**
+     * 业务线程池拒绝请求后暂停读取连接的时长（单位毫秒）
+     */
+    private static final long REJECT_PAUSE_MILLIS = 10;
+
+    /**
+     * 所有连接共享的并发限制
+     */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * 该连接上处理中的请求数达到该值时暂停读取，0表示不暂停
+     */
+    private final int maxPending;
+
+    /**
+     * 该连接上处理中的请求数
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * 是否因处理中的请求过多暂停读取，只在IO线程上读写
+     */
+    private boolean overloaded = false;
+
+    /**
+     * 是否因业务线程池拒绝请求暂停读取，只在IO线程上读写
+     */
+    private boolean rejectPaused = false;
+
+    private Channel channel;
+
+    public NettyServerHandler(ConcurrencyLimiter limiter, int maxPending) {
+        this.limiter = limiter;
+        this.maxPending = maxPending;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.channel = ctx.channel();
+    }
 
     @Override
-    protected void channelRead0(ChannelHandlerContext channelHandlerContext, FullHttpRequest fullHttpRequest) throws Exception {
-        ByteBuf buffer = fullHttpRequest.content();
-        byte[] data = new byte[buffer.readableBytes()];
-        buffer.readBytes(data);
-        RpcRequest rpcRequest = serializer.deserialize(data,RpcRequest.class);
+    protected void channelRead0(ChannelHandlerContext channelHandlerContext, ProtocolMessage<?> protocolMessage) throws Exception {
+        if (protocolMessage.getHeader().getType() == MessageType.BATCH_REQUEST) {
+            this.handleBatch(channelHandlerContext, protocolMessage);
+        } else {
+            this.dispatch(NettyServerHandler.asRequest(protocolMessage), channelHandlerContext::writeAndFlush);
+        }
+    }
+
+    /**
+     * 请求消息的消息体由解码器按消息类型解析为RpcRequest
+     */
+    @SuppressWarnings("unchecked")
+    private static ProtocolMessage<RpcRequest> asRequest(ProtocolMessage<?> protocolMessage) {
+        return (ProtocolMessage<RpcRequest>) protocolMessage;
+    }
+
+    /**
+     * 批量请求，各请求分别分发执行（可并行），全部完成后合并为一个批量响应写回
+     */
+    private void handleBatch(ChannelHandlerContext channelHandlerContext, ProtocolMessage<?> batch) {
+        List<ProtocolMessage<?>> requests = ProtocolMessage.messagesOf(batch);
+        ProtocolMessage<?>[] responses = new ProtocolMessage<?>[requests.size()];
+        AtomicInteger remaining = new AtomicInteger(requests.size());
+        ProtocolMessage.Header header = batch.getHeader();
+        header.setType(MessageType.BATCH_RESPONSE);
+        for (int i = 0; i < requests.size(); i++) {
+            int index = i;
+            this.dispatch(NettyServerHandler.asRequest(requests.get(i)), response -> {
+                responses[index] = response;
+                if (remaining.decrementAndGet() == 0) {
+                    channelHandlerContext.writeAndFlush(new ProtocolMessage<>(header, Arrays.asList(responses)));
+                }
+            });
+        }
+    }
+
+    /**
+     * 交给分发策略选择的线程执行，避免慢服务阻塞IO线程，响应在执行线程上异步回复
+     * 超出并发上限或业务线程池已满时直接回复过载，不执行服务方法
+     *
+     * @param responder 接收响应消息
+     */
+    private void dispatch(ProtocolMessage<RpcRequest> protocolMessage, Consumer<ProtocolMessage<RpcResponse>> responder) {
+        RpcRequest rpcRequest = protocolMessage.getBody();
+        /* 在IO线程上查找方法，服务或方法不存在时直接回复，避免按客户端发来的任意名称创建线程池、统计等状态 */
+        MethodInvoker invoker = null;
+        if (rpcRequest != null) {
+            try {
+                invoker = NettyServerHandler.findInvoker(rpcRequest);
+            } catch (Exception e) {
+                RpcResponse rpcResponse = new RpcResponse();
+                NettyServerHandler.setException(rpcResponse, e);
+                responder.accept(NettyServerHandler.buildResponse(protocolMessage, rpcResponse));
+                return;
+            }
+        }
+        MethodMetrics metrics = rpcRequest == null ? null
+                : MetricsRegistry.SERVER.get(rpcRequest.getServiceName(), rpcRequest.getMethodName());
+        /* 调用方已经不再等待的请求不进入业务线程池 */
+        if (NettyServerHandler.expired(protocolMessage, responder)) {
+            if (metrics != null) {
+                metrics.reject();
+            }
+            return;
+        }
+        String serviceName = rpcRequest == null ? null : rpcRequest.getServiceName();
+        if (!this.limiter.tryAcquire(serviceName)) {
+            if (metrics != null) {
+                metrics.reject();
+            }
+            responder.accept(NettyServerHandler.buildOverloaded(protocolMessage));
+            return;
+        }
+        this.onStart();
+        /* 耗时包括在业务线程池中排队的时间 */
+        long startTime = metrics == null ? System.nanoTime() : metrics.begin();
+        /* 回复响应时释放许可，过载和在业务线程池排队期间超过截止时间的请求未执行，计为拒绝 */
+        Consumer<ProtocolMessage<RpcResponse>> releasing = response -> this.finish(serviceName, metrics, startTime,
+                response.getHeader().getStatus() == MessageStatus.OVERLOADED, response, responder);
+        Consumer<ProtocolMessage<RpcResponse>> dropping = response -> this.finish(serviceName, metrics, startTime,
+                true, response, responder);
+        MethodInvoker resolved = invoker;
+        Dispatcher dispatcher = RpcApplication.dispatcher;
+        if (dispatcher == null) {
+            this.handle(protocolMessage, resolved, releasing, dropping, startTime);
+            return;
+        }
+        try {
+            dispatcher.dispatch(rpcRequest, () -> this.handle(protocolMessage, resolved, releasing, dropping, startTime));
+        } catch (RejectedExecutionException e) {
+            /* 业务线程池已满，短暂停止读取该连接，使压力传递给客户端 */
+            if (!this.rejectPaused) {
+                this.rejectPaused = true;
+                this.updateAutoRead();
+                this.channel.eventLoop().schedule(() -> {
+                    this.rejectPaused = false;
+                    this.updateAutoRead();
+                }, REJECT_PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            releasing.accept(NettyServerHandler.buildOverloaded(protocolMessage));
+        }
+    }
+
+    /**
+     * 请求处理结束，释放许可、记录统计后回复响应
+     *
+     * @param rejected 请求是否未执行
+     */
+    private void finish(String serviceName, MethodMetrics metrics, long startTime, boolean rejected,
+                        ProtocolMessage<RpcResponse> response, Consumer<ProtocolMessage<RpcResponse>> responder) {
+        this.limiter.release(serviceName);
+        this.onFinish();
+        if (metrics != null) {
+            if (rejected) {
+                metrics.abort();
+            } else {
+                metrics.end(startTime, response.getBody() == null || response.getBody().getException() != null);
+            }
+        }
+        responder.accept(response);
+    }
+
+    /**
+     * 请求开始处理（在IO线程上），处理中的请求达到上限时暂停读取该连接
+     */
+    private void onStart() {
+        if (this.pending.incrementAndGet() >= this.maxPending && this.maxPending > 0 && !this.overloaded) {
+            this.updateAutoRead();
+        }
+    }
+
+    /**
+     * 请求处理结束（可能在业务线程上），处理中的请求降到上限的一半时通知IO线程恢复读取
+     * 业务线程读到的暂停状态可能已经过时，因此每次降到一半都通知，由IO线程重新判断
+     */
+    private void onFinish() {
+        if (this.pending.decrementAndGet() == this.maxPending / 2 && this.maxPending > 0) {
+            this.updateAutoRead();
+        }
+    }
+
+    /**
+     * 按当前处理中的请求数调整是否读取该连接，达到上限时暂停，降到上限的一半时恢复
+     * autoRead只在IO线程上修改，且以修改时重新读取的请求数为准，避免与业务线程交错导致连接永久停止读取
+     */
+    private void updateAutoRead() {
+        if (!this.channel.eventLoop().inEventLoop()) {
+            this.channel.eventLoop().execute(this::updateAutoRead);
+            return;
+        }
+        int current = this.pending.get();
+        if (current >= this.maxPending && this.maxPending > 0) {
+            this.overloaded = true;
+        } else if (current <= this.maxPending / 2) {
+            this.overloaded = false;
+        }
+        boolean autoRead = !this.overloaded && !this.rejectPaused;
+        if (this.channel.config().isAutoRead() != autoRead) {
+            this.channel.config().setAutoRead(autoRead);
+        }
+    }
+
+    /**
+     * 从启动时生成的调用表中查找请求的方法
+     *
+     * @throws IllegalArgumentException 服务不存在
+     * @throws NoSuchMethodException    方法不存在
+     */
+    private static MethodInvoker findInvoker(RpcRequest rpcRequest) throws NoSuchMethodException {
+        ServiceInvoker serviceInvoker = LocalRegistry.getInvoker(rpcRequest.getServiceName());
+        if (serviceInvoker == null) {
+            throw new IllegalArgumentException("service not found: " + rpcRequest.getServiceName());
+        }
+        MethodInvoker invoker = serviceInvoker.getInvoker(rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
+        if (invoker == null) {
+            throw new NoSuchMethodException(rpcRequest.getServiceName() + "." + rpcRequest.getMethodName());
+        }
+        return invoker;
+    }
+
+    /**
+     * 执行服务方法并回复响应，采样的请求在响应元数据中返回各阶段耗时
+     *
+     * @param invoker     请求的方法，请求为null时为null
+     * @param dropping    接收在线程池中排队期间超过截止时间、未执行的请求的响应
+     * @param receiveTime 开始分发请求的时间（System.nanoTime）
+     */
+    private void handle(ProtocolMessage<RpcRequest> protocolMessage, MethodInvoker invoker,
+                        Consumer<ProtocolMessage<RpcResponse>> responder,
+                        Consumer<ProtocolMessage<RpcResponse>> dropping, long receiveTime) {
+        RpcRequest rpcRequest = protocolMessage.getBody();
         // 构造响应结果对象
         RpcResponse rpcResponse = new RpcResponse();
         // 如果请求为 null，直接返回
         if (rpcRequest == null) {
             rpcResponse.setMessage("rpcRequest is null");
         }else{
-            /* 通过反射调用相应的方法 */
-            Object service = LocalRegistry.get(rpcRequest.getServiceName());
-            Method method = service.getClass().getMethod(rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
-            Object result = method.invoke(service, rpcRequest.getArgs());
-            // 封装返回结果
-            rpcResponse.setData(result);
-            rpcResponse.setDataType(method.getReturnType());
-            rpcResponse.setMessage("ok");
+            /* 在线程池中排队期间已超过截止时间 */
+            if (NettyServerHandler.expired(protocolMessage, dropping)) {
+                return;
+            }
+            /* 服务方法内发起的远程调用继承该请求的截止时间 */
+            RpcContext.setDeadline(RpcContext.getDeadline(rpcRequest));
+            boolean traced = CallTrace.isTraced(rpcRequest);
+            long invokeTime = traced ? System.nanoTime() : 0;
+            try {
+                Object result = invoker.invoke(rpcRequest.getArgs());
+                /* 异步方法，待其完成后再返回结果，不占用当前线程 */
+                if (result instanceof CompletionStage) {
+                    ((CompletionStage<?>) result).whenComplete((data, e) -> {
+                        if (e != null) {
+                            NettyServerHandler.setException(rpcResponse, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                        } else {
+                            rpcResponse.setData(data);
+                            rpcResponse.setDataType(invoker.getAsyncResultType());
+                            rpcResponse.setMessage("ok");
+                        }
+                        if (traced) {
+                            CallTrace.setServerTiming(rpcResponse, protocolMessage.getDecodeNanos(),
+                                    invokeTime - receiveTime, System.nanoTime() - invokeTime);
+                        }
+                        responder.accept(NettyServerHandler.buildResponse(protocolMessage, rpcResponse));
+                    });
+                    return;
+                }
+                // 封装返回结果
+                rpcResponse.setData(result);
+                rpcResponse.setDataType(invoker.getReturnType());
+                rpcResponse.setMessage("ok");
+            } catch (Throwable e) {
+                /* 服务方法抛出的异常原样返回给客户端 */
+                NettyServerHandler.setException(rpcResponse, e);
+            } finally {
+                RpcContext.removeDeadline();
+            }
+            if (traced) {
+                CallTrace.setServerTiming(rpcResponse, protocolMessage.getDecodeNanos(),
+                        invokeTime - receiveTime, System.nanoTime() - invokeTime);
+            }
         }
-        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
-        response.content().writeBytes(serializer.serialize(rpcResponse));
-        // 设置响应头
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
-        channelHandlerContext.writeAndFlush(response);
+        responder.accept(NettyServerHandler.buildResponse(protocolMessage, rpcResponse));
     }
 
     /**
@@ -52,4 +326,45 @@ public class NettyServerHandler extends SimpleChannelInboundHandler<FullHttpRequ
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         ctx.close();
     }
+
+    /**
+     * 请求已超过截止时间时不再执行，直接回复超时
+     *
+     * @return 是否已超过截止时间
+     */
+    private static boolean expired(ProtocolMessage<RpcRequest> protocolMessage, Consumer<ProtocolMessage<RpcResponse>> responder) {
+        RpcRequest rpcRequest = protocolMessage.getBody();
+        long deadline = rpcRequest == null ? 0 : RpcContext.getDeadline(rpcRequest);
+        if (deadline == 0 || System.currentTimeMillis() < deadline) {
+            return false;
+        }
+        RpcResponse rpcResponse = new RpcResponse();
+        NettyServerHandler.setException(rpcResponse, new RpcException("deadline exceeded, request dropped", false));
+        responder.accept(NettyServerHandler.buildResponse(protocolMessage, rpcResponse));
+        return true;
+    }
+
+    private static void setException(RpcResponse rpcResponse, Throwable e) {
+        rpcResponse.setException(e instanceof Exception ? (Exception) e : new RuntimeException(e));
+        rpcResponse.setMessage(e.getMessage());
+    }
+
+    /**
+     * 过载响应只有消息头，客户端按状态识别
+     */
+    private static ProtocolMessage<RpcResponse> buildOverloaded(ProtocolMessage<RpcRequest> request) {
+        ProtocolMessage.Header header = request.getHeader();
+        header.setType(MessageType.RESPONSE);
+        header.setStatus(MessageStatus.OVERLOADED);
+        return new ProtocolMessage<>(header, null);
+    }
+
+    /**
+     * 响应沿用请求的消息头，客户端通过请求id匹配
+     */
+    private static ProtocolMessage<RpcResponse> buildResponse(ProtocolMessage<RpcRequest> request, RpcResponse rpcResponse) {
+        ProtocolMessage.Header header = request.getHeader();
+        header.setType(MessageType.RESPONSE);
+        return new ProtocolMessage<>(header, rpcResponse);
+    }
 }
@@ -0,0 +1,14 @@
+package com.lzy.rpc.provider.server.dispatcher;
+
+import com.lzy.rpc.bean.RpcRequest;
+
+/**
+ * 直接在IO线程上执行，仅适用于执行很快且不会阻塞的服务
+ */
+public class DirectDispatcher implements Dispatcher {
+
+    @Override
+    public void dispatch(RpcRequest rpcRequest, Runnable task) {
+        task.run();
+    }
+}
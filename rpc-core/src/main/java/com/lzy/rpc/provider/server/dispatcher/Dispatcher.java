@@ -0,0 +1,20 @@
+package com.lzy.rpc.provider.server.dispatcher;
+
+import com.lzy.rpc.bean.RpcRequest;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 请求分发接口，决定服务方法在哪个线程上执行
+ */
+public interface Dispatcher {
+
+    /**
+     * 分发请求
+     *
+     * @param rpcRequest 请求，可据此选择线程池
+     * @param task       执行服务方法并回复响应的任务
+     * @throws RejectedExecutionException 线程池已满时抛出
+     */
+    void dispatch(RpcRequest rpcRequest, Runnable task) throws RejectedExecutionException;
+}
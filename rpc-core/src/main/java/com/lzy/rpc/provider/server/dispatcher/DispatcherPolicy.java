@@ -0,0 +1,27 @@
+package com.lzy.rpc.provider.server.dispatcher;
+
+/**
+ * 请求分发策略常量
+ */
+public class DispatcherPolicy {
+
+    /**
+     * 直接在IO线程上执行
+     */
+    public static final String DIRECT = "direct";
+
+    /**
+     * 所有服务共用一个固定大小的线程池
+     */
+    public static final String FIXED = "fixed";
+
+    /**
+     * 每个服务使用独立的线程池（舱壁隔离）
+     */
+    public static final String ISOLATED = "isolated";
+
+    /**
+     * 每个请求一个虚拟线程（需JDK21及以上）
+     */
+    public static final String VIRTUAL = "virtual";
+}
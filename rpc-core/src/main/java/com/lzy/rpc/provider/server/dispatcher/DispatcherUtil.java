@@ -0,0 +1,29 @@
+package com.lzy.rpc.provider.server.dispatcher;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业务线程池工具类
+ */
+public class DispatcherUtil {
+
+    /**
+     * 创建固定大小的线程池，队列满时拒绝
+     *
+     * @param name    线程名前缀
+     * @param threads 线程数
+     * @param queues  队列长度，0表示不排队
+     */
+    public static ExecutorService newFixedThreadPool(String name, int threads, int queues) {
+        BlockingQueue<Runnable> queue = queues > 0 ? new ArrayBlockingQueue<>(queues) : new SynchronousQueue<>();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue,
+                new DefaultThreadFactory(name, true), new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,25 @@
+package com.lzy.rpc.provider.server.dispatcher;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.config.ServerConfig;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 所有服务共用一个固定大小的业务线程池
+ */
+public class FixedDispatcher implements Dispatcher {
+
+    private final ExecutorService executor;
+
+    public FixedDispatcher() {
+        ServerConfig serverConfig = RpcApplication.rpcConfig.getServer();
+        this.executor = DispatcherUtil.newFixedThreadPool("rpc-server-biz", serverConfig.getThreads(), serverConfig.getQueues());
+    }
+
+    @Override
+    public void dispatch(RpcRequest rpcRequest, Runnable task) {
+        this.executor.execute(task);
+    }
+}
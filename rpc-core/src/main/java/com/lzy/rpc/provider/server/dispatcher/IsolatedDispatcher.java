@@ -0,0 +1,33 @@
+package com.lzy.rpc.provider.server.dispatcher;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.config.ServerConfig;
+import com.lzy.rpc.provider.registry.LocalRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 每个服务使用独立的线程池，某个服务变慢时只会耗尽自己的线程，不影响其他服务
+ */
+public class IsolatedDispatcher implements Dispatcher {
+
+    /**
+     * 结构为：服务名称:线程池
+     */
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    private final ServerConfig serverConfig = RpcApplication.rpcConfig.getServer();
+
+    @Override
+    public void dispatch(RpcRequest rpcRequest, Runnable task) {
+        /* 只为已注册的服务创建线程池，其他请求共用一个线程池，避免按任意服务名称创建线程池 */
+        String serviceName = rpcRequest == null || LocalRegistry.getInvoker(rpcRequest.getServiceName()) == null
+                ? "" : rpcRequest.getServiceName();
+        this.executors.computeIfAbsent(serviceName, key -> DispatcherUtil.newFixedThreadPool(
+                key.isEmpty() ? "rpc-server-shared" : "rpc-server-" + key, this.serverConfig.getIsolatedThreads(), this.serverConfig.getQueues())
+        ).execute(task);
+    }
+}
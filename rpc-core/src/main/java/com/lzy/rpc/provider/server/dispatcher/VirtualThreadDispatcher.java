@@ -0,0 +1,37 @@
+package com.lzy.rpc.provider.server.dispatcher;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.config.ServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 每个请求在一个新的虚拟线程上执行，阻塞型服务无需调整线程池大小
+ * 运行环境低于JDK21时退化为固定大小的线程池
+ */
+@Slf4j
+public class VirtualThreadDispatcher implements Dispatcher {
+
+    private final ExecutorService executor;
+
+    public VirtualThreadDispatcher() {
+        ExecutorService executor;
+        try {
+            /* 项目以JDK8编译，通过反射获取虚拟线程执行器 */
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("virtual threads are not supported by this JVM, fall back to a fixed thread pool");
+            ServerConfig serverConfig = RpcApplication.rpcConfig.getServer();
+            executor = DispatcherUtil.newFixedThreadPool("rpc-server-biz", serverConfig.getThreads(), serverConfig.getQueues());
+        }
+        this.executor = executor;
+    }
+
+    @Override
+    public void dispatch(RpcRequest rpcRequest, Runnable task) {
+        this.executor.execute(task);
+    }
+}
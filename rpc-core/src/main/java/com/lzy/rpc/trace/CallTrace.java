@@ -0,0 +1,238 @@
+package com.lzy.rpc.trace;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.config.ClientConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次调用的阶段耗时，按采样率记录，未采样的调用不产生任何开销
+ * 客户端记录服务发现、负载均衡以及每次请求的序列化、网络、响应解析耗时，
+ * 被采样的请求在元数据中带有标记，服务端在响应元数据中返回解析请求、排队和执行服务方法的耗时
+ * 超过慢调用阈值的调用写入慢调用日志，采样的调用附带阶段耗时
+ */
+public class CallTrace {
+
+    /**
+     * 请求被采样的标记在请求元数据中的键
+     */
+    public static final String TRACE = "trace";
+
+    /**
+     * 服务端各阶段耗时在响应元数据中的键，值的格式为 阶段=耗时,阶段=耗时，单位微秒
+     */
+    public static final String TIMING = "timing";
+
+    /**
+     * 客户端解析响应的耗时在响应元数据中的键，由客户端处理器写入，单位微秒
+     */
+    public static final String RESPONSE_DECODE = "responseDecode";
+
+    /**
+     * 未初始化配置时使用的默认配置
+     */
+    private static final ClientConfig defaultConfig = new ClientConfig();
+
+    /**
+     * 慢调用日志，可在日志配置中单独输出
+     */
+    private static final Logger slowCallLog = LoggerFactory.getLogger("com.lzy.rpc.slow");
+
+    /**
+     * 按发生顺序记录的阶段耗时，重试和对冲的多次请求依次记录
+     */
+    private final StringBuilder phases = new StringBuilder();
+
+    CallTrace() {
+    }
+
+    /**
+     * 按采样率决定是否记录该调用的阶段耗时，采样时在请求元数据中加入标记
+     *
+     * @return 未采样时返回null
+     */
+    public static CallTrace sample(RpcRequest rpcRequest) {
+        double rate = CallTrace.clientConfig().getTraceSampleRate();
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return null;
+        }
+        /* 替换整个元数据而不是原地修改，与设置截止时间的方式一致 */
+        Map<String, String> metadata = rpcRequest.getMetadata() == null
+                ? new HashMap<>() : new HashMap<>(rpcRequest.getMetadata());
+        metadata.put(TRACE, "1");
+        rpcRequest.setMetadata(metadata);
+        return new CallTrace();
+    }
+
+    /**
+     * @return 请求是否被采样
+     */
+    public static boolean isTraced(RpcRequest rpcRequest) {
+        Map<String, String> metadata = rpcRequest.getMetadata();
+        return metadata != null && metadata.containsKey(TRACE);
+    }
+
+    /**
+     * 服务端在响应元数据中返回各阶段耗时
+     *
+     * @param decodeNanos 解析请求的耗时（单位纳秒）
+     * @param queueNanos  在业务线程池中排队的耗时（单位纳秒）
+     * @param invokeNanos 执行服务方法的耗时（单位纳秒）
+     */
+    public static void setServerTiming(RpcResponse rpcResponse, long decodeNanos, long queueNanos, long invokeNanos) {
+        Map<String, String> metadata = rpcResponse.getMetadata() == null ? new HashMap<>() : rpcResponse.getMetadata();
+        metadata.put(TIMING, "decode=" + TimeUnit.NANOSECONDS.toMicros(decodeNanos)
+                + ",queue=" + TimeUnit.NANOSECONDS.toMicros(queueNanos)
+                + ",invoke=" + TimeUnit.NANOSECONDS.toMicros(invokeNanos));
+        rpcResponse.setMetadata(metadata);
+    }
+
+    /**
+     * 配置在每次使用时读取，不在类加载时固定，使类在RpcApplication.init之前被加载时也能使用之后的配置
+     */
+    private static ClientConfig clientConfig() {
+        return RpcApplication.rpcConfig == null ? defaultConfig : RpcApplication.rpcConfig.getClient();
+    }
+
+    /**
+     * 解析耗时（单位微秒）
+     *
+     * @return 为空、不是数字或为负数时返回-1
+     */
+    private static long parseMicros(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(Long.parseLong(value.trim()), -1);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 记录一个客户端阶段的耗时
+     *
+     * @param nanos 单位纳秒
+     */
+    public synchronized void record(String phase, long nanos) {
+        this.phases.append(phase).append('=').append(TimeUnit.NANOSECONDS.toMicros(nanos)).append("us ");
+    }
+
+    /**
+     * 已记录的阶段耗时
+     */
+    synchronized String phases() {
+        return this.phases.toString().trim();
+    }
+
+    /**
+     * 开始向指定节点发送一次请求
+     */
+    public Attempt attempt(String address) {
+        return new Attempt(address);
+    }
+
+    /**
+     * 调用结束，超过慢调用阈值时写入慢调用日志
+     *
+     * @param trace   阶段耗时，未采样时为null
+     * @param nanos   调用的总耗时（单位纳秒）
+     * @param urls    请求过的节点
+     * @param failure 调用失败的原因，成功时为null
+     */
+    public static void finish(CallTrace trace, RpcRequest rpcRequest, long nanos, Set<String> urls, Throwable failure) {
+        long slowCallNanos = TimeUnit.MILLISECONDS.toNanos(CallTrace.clientConfig().getSlowCallThreshold());
+        if (slowCallNanos <= 0 || nanos < slowCallNanos) {
+            return;
+        }
+        String result = failure == null ? "" : ", failed: " + failure;
+        if (trace == null) {
+            slowCallLog.warn("slow call {}.{} took {}ms, nodes {}{} (not sampled)", rpcRequest.getServiceName(),
+                    rpcRequest.getMethodName(), TimeUnit.NANOSECONDS.toMillis(nanos), urls, result);
+            return;
+        }
+        slowCallLog.warn("slow call {}.{} took {}ms{}: {}", rpcRequest.getServiceName(), rpcRequest.getMethodName(),
+                TimeUnit.NANOSECONDS.toMillis(nanos), result, trace.phases());
+    }
+
+    /**
+     * 向一个节点发送的一次请求
+     * 网络耗时为请求总耗时减去序列化、服务端各阶段和响应解析的耗时，包括传输、服务端序列化响应和IO线程排队的时间
+     */
+    public class Attempt {
+
+        private final String address;
+
+        private final long startTime = System.nanoTime();
+
+        /**
+         * 序列化请求的耗时（单位纳秒），由发送请求的IO线程写入
+         */
+        private volatile long encodeNanos;
+
+        private Attempt(String address) {
+            this.address = address;
+        }
+
+        public void setEncodeNanos(long encodeNanos) {
+            this.encodeNanos = encodeNanos;
+        }
+
+        /**
+         * 请求结束，记录该请求的各阶段耗时
+         *
+         * @param rpcResponse 响应，请求失败时为null
+         * @param cause       请求失败的原因
+         */
+        public void end(RpcResponse rpcResponse, Throwable cause) {
+            long total = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - this.startTime);
+            long encode = TimeUnit.NANOSECONDS.toMicros(this.encodeNanos);
+            StringBuilder builder = new StringBuilder("[").append(this.address)
+                    .append(" serialize=").append(encode).append("us");
+            if (rpcResponse == null) {
+                builder.append(" failed=").append(cause).append(" total=").append(total).append("us]");
+                this.append(builder);
+                return;
+            }
+            Map<String, String> metadata = rpcResponse.getMetadata();
+            String timing = metadata == null ? null : metadata.get(TIMING);
+            String decode = metadata == null ? null : metadata.get(RESPONSE_DECODE);
+            /* 耗时来自对端，无法解析的项跳过，不影响调用本身 */
+            long decodeMicros = CallTrace.parseMicros(decode);
+            long other = encode + Math.max(decodeMicros, 0);
+            StringBuilder server = new StringBuilder();
+            if (timing != null) {
+                for (String phase : timing.split(",")) {
+                    int split = phase.indexOf('=');
+                    long micros = split <= 0 ? -1 : CallTrace.parseMicros(phase.substring(split + 1));
+                    if (micros < 0) {
+                        continue;
+                    }
+                    other += micros;
+                    server.append(" server.").append(phase, 0, split).append('=').append(micros).append("us");
+                }
+            }
+            builder.append(" network=").append(Math.max(total - other, 0)).append("us").append(server);
+            if (decodeMicros >= 0) {
+                builder.append(" deserialize=").append(decodeMicros).append("us");
+            }
+            builder.append(" total=").append(total).append("us]");
+            this.append(builder);
+        }
+
+        private void append(StringBuilder builder) {
+            synchronized (CallTrace.this) {
+                CallTrace.this.phases.append(builder).append(' ');
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.lzy.rpc.util;
+
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Hessian 序列化器
+ */
+public class HessianSerializer implements Serializer {
+
+    @Override
+    public byte getId() {
+        return 3;
+    }
+
+    /**
+     * 序列化
+     */
+    @Override
+    public <T> byte[] serialize(T object) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Hessian2Output hessian2Output = new Hessian2Output(outputStream);
+        hessian2Output.writeObject(object);
+        hessian2Output.close();
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 反序列化
+     */
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> type) throws IOException {
+        Hessian2Input hessian2Input = new Hessian2Input(new ByteArrayInputStream(bytes));
+        try {
+            return type.cast(hessian2Input.readObject(type));
+        } finally {
+            hessian2Input.close();
+        }
+    }
+
+    /**
+     * 序列化到ByteBuf
+     */
+    @Override
+    public <T> void serialize(T object, ByteBuf out) throws IOException {
+        Hessian2Output hessian2Output = new Hessian2Output(new ByteBufOutputStream(out));
+        hessian2Output.writeObject(object);
+        hessian2Output.close();
+    }
+
+    /**
+     * 从ByteBuf反序列化
+     */
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> type) throws IOException {
+        Hessian2Input hessian2Input = new Hessian2Input(new ByteBufInputStream(in));
+        try {
+            return type.cast(hessian2Input.readObject(type));
+        } finally {
+            hessian2Input.close();
+        }
+    }
+}
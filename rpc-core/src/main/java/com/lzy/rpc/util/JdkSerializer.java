@@ -1,5 +1,9 @@
 package com.lzy.rpc.util;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
 import java.io.*;
 
 /**
@@ -7,6 +11,11 @@ import java.io.*;
  */
 public class JdkSerializer implements Serializer {
 
+    @Override
+    public byte getId() {
+        return 0;
+    }
+
     /**
      * 序列化
      */
@@ -27,7 +36,32 @@ public class JdkSerializer implements Serializer {
         ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
         ObjectInputStream objectInputStream = new ObjectInputStream(inputStream);
         try {
-            return (T) objectInputStream.readObject();
+            return type.cast(objectInputStream.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        } finally {
+            objectInputStream.close();
+        }
+    }
+
+    /**
+     * 序列化到ByteBuf
+     */
+    @Override
+    public <T> void serialize(T object, ByteBuf out) throws IOException {
+        ObjectOutputStream objectOutputStream = new ObjectOutputStream(new ByteBufOutputStream(out));
+        objectOutputStream.writeObject(object);
+        objectOutputStream.close();
+    }
+
+    /**
+     * 从ByteBuf反序列化
+     */
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> type) throws IOException {
+        ObjectInputStream objectInputStream = new ObjectInputStream(new ByteBufInputStream(in));
+        try {
+            return type.cast(objectInputStream.readObject());
         } catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
         } finally {
@@ -0,0 +1,102 @@
+package com.lzy.rpc.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * JSON 序列化器
+ * JSON不携带类型信息，Object类型的字段会被解析为Map等基础类型，需按声明的类型重新转换
+ */
+public class JsonSerializer implements Serializer {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Override
+    public byte getId() {
+        return 1;
+    }
+
+    /**
+     * 序列化
+     */
+    @Override
+    public <T> byte[] serialize(T object) throws IOException {
+        return objectMapper.writeValueAsBytes(object);
+    }
+
+    /**
+     * 反序列化
+     */
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> type) throws IOException {
+        return JsonSerializer.convert(objectMapper.readValue(bytes, type));
+    }
+
+    /**
+     * 序列化到ByteBuf
+     */
+    @Override
+    public <T> void serialize(T object, ByteBuf out) throws IOException {
+        objectMapper.writeValue((OutputStream) new ByteBufOutputStream(out), object);
+    }
+
+    /**
+     * 从ByteBuf反序列化
+     */
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> type) throws IOException {
+        return JsonSerializer.convert(objectMapper.readValue((InputStream) new ByteBufInputStream(in), type));
+    }
+
+    /**
+     * 按请求、响应中声明的类型转换Object类型的字段
+     */
+    private static <T> T convert(T object) {
+        if (object instanceof RpcRequest) {
+            JsonSerializer.convertArgs((RpcRequest) object);
+        } else if (object instanceof RpcResponse) {
+            JsonSerializer.convertData((RpcResponse) object);
+        }
+        return object;
+    }
+
+    /**
+     * 将参数列表按参数类型列表转换
+     */
+    private static void convertArgs(RpcRequest rpcRequest) {
+        Class<?>[] parameterTypes = rpcRequest.getParameterTypes();
+        Object[] args = rpcRequest.getArgs();
+        if (parameterTypes == null || args == null) {
+            return;
+        }
+        for (int i = 0; i < parameterTypes.length && i < args.length; i++) {
+            args[i] = JsonSerializer.convert(args[i], parameterTypes[i]);
+        }
+    }
+
+    /**
+     * 将响应数据按响应数据类型转换
+     */
+    private static void convertData(RpcResponse rpcResponse) {
+        if (rpcResponse.getDataType() != null) {
+            rpcResponse.setData(JsonSerializer.convert(rpcResponse.getData(), rpcResponse.getDataType()));
+        }
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        return objectMapper.convertValue(value, type);
+    }
+}
@@ -0,0 +1,87 @@
+package com.lzy.rpc.util;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.JavaSerializer;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.IOException;
+
+/**
+ * Kryo 序列化器
+ */
+public class KryoSerializer implements Serializer {
+
+    /**
+     * Kryo实例线程不安全，每个线程持有一个
+     */
+    private static final ThreadLocal<Kryo> kryoThreadLocal = ThreadLocal.withInitial(() -> {
+        Kryo kryo = new Kryo();
+        /* 不要求预先注册类，也不要求类有无参构造器 */
+        kryo.setRegistrationRequired(false);
+        kryo.setReferences(true);
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        /* 异常对象的字段依赖JDK内部实现，交给JDK序列化处理 */
+        kryo.addDefaultSerializer(Throwable.class, new JavaSerializer());
+        return kryo;
+    });
+
+    /**
+     * 写入ByteBuf时复用的输出缓冲区
+     */
+    private static final ThreadLocal<Output> outputThreadLocal = ThreadLocal.withInitial(() -> new Output(512));
+
+    @Override
+    public byte getId() {
+        return 2;
+    }
+
+    /**
+     * 序列化
+     */
+    @Override
+    public <T> byte[] serialize(T object) throws IOException {
+        Output output = new Output(256, -1);
+        kryoThreadLocal.get().writeObject(output, object);
+        return output.toBytes();
+    }
+
+    /**
+     * 反序列化
+     */
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> type) throws IOException {
+        return kryoThreadLocal.get().readObject(new Input(bytes), type);
+    }
+
+    /**
+     * 序列化到ByteBuf，复用线程内的输出缓冲区
+     */
+    @Override
+    public <T> void serialize(T object, ByteBuf out) throws IOException {
+        Output output = outputThreadLocal.get();
+        output.setOutputStream(new ByteBufOutputStream(out));
+        try {
+            kryoThreadLocal.get().writeObject(output, object);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+        }
+    }
+
+    /**
+     * 从ByteBuf反序列化，直接读取其底层内存，不拷贝
+     */
+    @Override
+    public <T> T deserialize(ByteBuf in, Class<T> type) throws IOException {
+        ByteBufferInput input = new ByteBufferInput(in.nioBuffer());
+        T object = kryoThreadLocal.get().readObject(input, type);
+        in.skipBytes(input.position());
+        return object;
+    }
+}
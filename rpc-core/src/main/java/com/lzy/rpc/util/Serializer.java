@@ -1,5 +1,7 @@
 package com.lzy.rpc.util;
 
+import io.netty.buffer.ByteBuf;
+
 import java.io.IOException;
 
 /**
@@ -7,6 +9,11 @@ import java.io.IOException;
  */
 public interface Serializer {
 
+    /**
+     * 序列化器标识，写入消息头，接收方据此选择反序列化器
+     */
+    byte getId();
+
     /**
      * 序列化
      */
@@ -16,4 +23,22 @@ public interface Serializer {
      * 反序列化
      */
     <T> T deserialize(byte[] bytes, Class<T> type) throws IOException;
+
+    /**
+     * 直接序列化到ByteBuf，避免中间字节数组
+     * 默认先序列化为字节数组再写入，实现类应尽量覆盖
+     */
+    default <T> void serialize(T object, ByteBuf out) throws IOException {
+        out.writeBytes(this.serialize(object));
+    }
+
+    /**
+     * 直接从ByteBuf反序列化，读取其全部可读字节
+     * 默认先拷贝为字节数组再反序列化，实现类应尽量覆盖
+     */
+    default <T> T deserialize(ByteBuf in, Class<T> type) throws IOException {
+        byte[] bytes = new byte[in.readableBytes()];
+        in.readBytes(bytes);
+        return this.deserialize(bytes, type);
+    }
 }
@@ -0,0 +1,48 @@
+package com.lzy.rpc.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 序列化器工厂
+ * 通过SPI加载所有序列化器，可按配置标识或消息头中的序列化器标识获取
+ */
+public class SerializerFactory {
+
+    /**
+     * 结构为：配置标识:序列化器
+     */
+    private static final Map<String, Serializer> keyMap = new HashMap<>();
+
+    /**
+     * 下标为消息头中的序列化器标识
+     */
+    private static final Serializer[] idTable = new Serializer[256];
+
+    static {
+        SpiLoader.init();
+        for (Map.Entry<String, Class<?>> entry : SpiLoader.getClazzes(Serializer.class.getName()).entrySet()) {
+            try {
+                Serializer serializer = (Serializer) entry.getValue().newInstance();
+                keyMap.put(entry.getKey(), serializer);
+                idTable[serializer.getId() & 0xFF] = serializer;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 按配置标识获取序列化器，不存在时返回null
+     */
+    public static Serializer getSerializer(String key) {
+        return keyMap.get(key);
+    }
+
+    /**
+     * 按消息头中的序列化器标识获取序列化器，不存在时返回null
+     */
+    public static Serializer getSerializer(byte id) {
+        return idTable[id & 0xFF];
+    }
+}
@@ -0,0 +1,15 @@
+package com.lzy.rpc.util;
+
+/**
+ * 序列化器常量
+ */
+public class SerializerPolicy {
+
+    public static final String JDK = "jdk";
+
+    public static final String JSON = "json";
+
+    public static final String KRYO = "kryo";
+
+    public static final String HESSIAN = "hessian";
+}
@@ -4,6 +4,7 @@ import cn.hutool.core.io.resource.ResourceUtil;
 import com.lzy.rpc.loadbalancer.LoadBalancer;
 import com.lzy.rpc.loadbalancer.LoadBalancerPolicy;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
@@ -16,6 +17,7 @@ import java.util.Map;
  * SPI机制实现
  */
 @Data
+@Slf4j
 public class SpiLoader {
 
     /**
@@ -29,7 +31,15 @@ public class SpiLoader {
      */
     private static final String RPC_SPI_CONFIG = "META-INF/rpc/spi.properties";
 
-    public static void init(){
+    /**
+     * 是否已加载
+     */
+    private static volatile boolean loaded = false;
+
+    public static synchronized void init(){
+        if(SpiLoader.loaded){
+            return;
+        }
         //System.out.println(LoadBalancer.class.getName());
         /**
          * 加载文件
@@ -49,7 +59,12 @@ public class SpiLoader {
                     if (strArray.length > 1) {
                         String key = strArray[0];
                         String className = strArray[1];
-                        SpiLoader.loaderMap.put(key, Class.forName(className));
+                        /* 实现类依赖的第三方库缺失时跳过该实现，不影响其他实现的加载 */
+                        try {
+                            SpiLoader.loaderMap.put(key, Class.forName(className));
+                        } catch (ClassNotFoundException | LinkageError e) {
+                            log.warn("skip spi implementation {}={}: {}", key, className, e.toString());
+                        }
                     }
                 }
             } catch (Exception e) {
@@ -70,6 +85,7 @@ public class SpiLoader {
                 }
             }
         }
+        SpiLoader.loaded = true;
     }
 
     /**
@@ -79,6 +95,20 @@ public class SpiLoader {
         return SpiLoader.loaderMap.get(interfaceName+"."+key);
     }
 
+    /**
+     * 获取指定接口的所有实现类类型，结构为：实现类对应的标识:实现类
+     */
+    public static Map<String, Class<?>> getClazzes(String interfaceName){
+        Map<String, Class<?>> clazzes = new HashMap<>();
+        String prefix = interfaceName+".";
+        for (Map.Entry<String, Class<?>> entry : SpiLoader.loaderMap.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                clazzes.put(entry.getKey().substring(prefix.length()), entry.getValue());
+            }
+        }
+        return clazzes;
+    }
+
 //    public static void main(String[] args) throws InstantiationException, IllegalAccessException {
 //        SpiLoader.init();
 //        System.out.println(SpiLoader.getClazz(LoadBalancer.class.getName(), LoadBalancerPolicy.RANDOM));
@@ -0,0 +1,181 @@
+package com.lzy.rpc.consumer.breaker;
+
+import com.lzy.rpc.config.ClientConfig;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    public void staysClosedBelowMinimumRequests() {
+        CircuitBreaker breaker = new CircuitBreaker(config(true));
+        for (int i = 0; i < 3; i++) {
+            breaker.record(FAST, true);
+        }
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void opensOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker(config(true));
+        breaker.record(FAST, false);
+        breaker.record(FAST, false);
+        breaker.record(FAST, true);
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        breaker.record(FAST, true);
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertFalse(breaker.isAvailable());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.availableTime() != 0);
+    }
+
+    @Test
+    public void opensOnSlowCallRate() {
+        CircuitBreaker breaker = new CircuitBreaker(config(true));
+        for (int i = 0; i < 4; i++) {
+            breaker.record(SLOW, false);
+        }
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenProbesCloseTheBreaker() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(60);
+        assertTrue(breaker.isAvailable());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        /* 探测名额用完后不再放行 */
+        assertFalse(breaker.isAvailable());
+        assertFalse(breaker.tryAcquire());
+        breaker.record(FAST, false);
+        assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+        breaker.record(FAST, false);
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        /* 关闭时清空窗口，之前的失败不再计入 */
+        breaker.record(FAST, true);
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void failedProbeReopensTheBreaker() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(60);
+        assertTrue(breaker.tryAcquire());
+        breaker.record(FAST, true);
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void cancelledProbeReturnsItsSlotWithoutClosing() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(60);
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        /* 被取消的探测不算成功，归还的名额可以再放行一个探测 */
+        breaker.release();
+        assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        breaker.record(FAST, false);
+        assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+        breaker.record(FAST, false);
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void concurrentCallersNeverExceedTheProbeQuota() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            CircuitBreaker breaker = opened();
+            Thread.sleep(60);
+            int threads = 8;
+            AtomicInteger admitted = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 100; i++) {
+                        if (breaker.tryAcquire()) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+            assertEquals(2, admitted.get());
+        }
+    }
+
+    @Test
+    public void disabledBreakerIgnoresFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(config(false));
+        for (int i = 0; i < 10; i++) {
+            breaker.record(FAST, true);
+        }
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        assertTrue(breaker.isAvailable());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void removeDropsTheBreaker() {
+        String address = "127.0.0.1:" + System.nanoTime();
+        CircuitBreaker breaker = CircuitBreaker.get(address);
+        assertSame(breaker, CircuitBreaker.get(address));
+        long version = CircuitBreaker.version();
+        CircuitBreaker.remove(address);
+        assertTrue(CircuitBreaker.version() > version);
+        assertNotSame(breaker, CircuitBreaker.get(address));
+        CircuitBreaker.remove(address);
+    }
+
+    private static CircuitBreaker opened() {
+        CircuitBreaker breaker = new CircuitBreaker(config(true));
+        for (int i = 0; i < 4; i++) {
+            breaker.record(FAST, true);
+        }
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static ClientConfig config(boolean enabled) {
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setCircuitBreaker(enabled);
+        clientConfig.setBreakerMinRequests(4);
+        clientConfig.setBreakerFailureRate(0.5);
+        clientConfig.setBreakerSlowCallRate(0.8);
+        clientConfig.setBreakerSlowCallThreshold(100);
+        clientConfig.setBreakerOpenDuration(50);
+        clientConfig.setBreakerHalfOpenRequests(2);
+        return clientConfig;
+    }
+}
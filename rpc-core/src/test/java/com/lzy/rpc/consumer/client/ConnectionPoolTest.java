@@ -0,0 +1,110 @@
+package com.lzy.rpc.consumer.client;
+
+import com.lzy.rpc.bean.ServiceInfo;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionPoolTest {
+
+    private static final ChannelInitializer<Channel> NOOP = new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(Channel ch) {
+        }
+    };
+
+    private EventLoopGroup group;
+
+    private Channel server;
+
+    private Bootstrap bootstrap;
+
+    private ServiceInfo serviceInfo;
+
+    @Before
+    public void setUp() throws Exception {
+        this.group = new NioEventLoopGroup(2);
+        this.server = new ServerBootstrap()
+                .group(this.group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(NOOP)
+                .bind("127.0.0.1", 0).sync().channel();
+        this.bootstrap = new Bootstrap()
+                .group(this.group)
+                .channel(NioSocketChannel.class)
+                .handler(NOOP);
+        this.serviceInfo = new ServiceInfo();
+        this.serviceInfo.setServiceHost("127.0.0.1");
+        this.serviceInfo.setServicePort(((InetSocketAddress) this.server.localAddress()).getPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        this.server.close().sync();
+        this.group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+
+    @Test
+    public void concurrentAcquireNeverReturnsNull() throws Exception {
+        ConnectionPool pool = new ConnectionPool(this.bootstrap, this.serviceInfo, 2);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < 200; j++) {
+                        ChannelFuture channelFuture = pool.acquire();
+                        assertNotNull(channelFuture);
+                        assertTrue(channelFuture.sync().channel().isActive());
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(failure.get());
+        pool.close();
+    }
+
+    @Test
+    public void closedConnectionIsReplaced() throws Exception {
+        ConnectionPool pool = new ConnectionPool(this.bootstrap, this.serviceInfo, 1);
+        Channel first = pool.acquire().sync().channel();
+        first.close().sync();
+        Channel second = pool.acquire().sync().channel();
+        assertNotSame(first, second);
+        assertTrue(second.isActive());
+        pool.close();
+        assertTrue(second.closeFuture().await(1000));
+    }
+}
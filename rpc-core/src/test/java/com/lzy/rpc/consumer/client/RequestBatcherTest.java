@@ -0,0 +1,130 @@
+package com.lzy.rpc.consumer.client;
+
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.protocol.MessageType;
+import com.lzy.rpc.protocol.ProtocolDecoder;
+import com.lzy.rpc.protocol.ProtocolEncoder;
+import com.lzy.rpc.protocol.ProtocolMessage;
+import com.lzy.rpc.util.SerializerFactory;
+import com.lzy.rpc.util.SerializerPolicy;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RequestBatcherTest {
+
+    @Test
+    public void fullBatchIsWrittenAsOneFrame() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ProtocolEncoder(), new RequestBatcher(3, 1000000));
+        List<ChannelFuture> writes = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            writes.add(channel.writeAndFlush(request(id)));
+        }
+        ProtocolMessage<?> frame = decodeOne(channel);
+        assertEquals(MessageType.BATCH_REQUEST, frame.getHeader().getType());
+        List<ProtocolMessage<?>> inner = ProtocolMessage.messagesOf(frame);
+        assertEquals(3, inner.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, inner.get(i).getHeader().getRequestId());
+            assertEquals("add", ((RpcRequest) inner.get(i).getBody()).getMethodName());
+            assertTrue(writes.get(i).isSuccess());
+        }
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    public void partialBatchIsWrittenWhenTheWindowExpires() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new ProtocolEncoder(), new RequestBatcher(16, 0));
+        ChannelFuture first = channel.writeAndFlush(request(1));
+        ChannelFuture second = channel.writeAndFlush(request(2));
+        /* 窗口到期之前不写出 */
+        assertNull(channel.readOutbound());
+        assertFalse(first.isDone());
+        Thread.sleep(1);
+        channel.runScheduledPendingTasks();
+        ProtocolMessage<?> frame = decodeOne(channel);
+        assertEquals(MessageType.BATCH_REQUEST, frame.getHeader().getType());
+        assertEquals(2, ProtocolMessage.messagesOf(frame).size());
+        assertTrue(first.isSuccess());
+        assertTrue(second.isSuccess());
+    }
+
+    @Test
+    public void singleRequestIsWrittenAsPlainFrame() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new ProtocolEncoder(), new RequestBatcher(16, 0));
+        channel.writeAndFlush(request(7));
+        Thread.sleep(1);
+        channel.runScheduledPendingTasks();
+        ProtocolMessage<?> frame = decodeOne(channel);
+        assertEquals(MessageType.REQUEST, frame.getHeader().getType());
+        assertEquals(7, frame.getHeader().getRequestId());
+    }
+
+    @Test
+    public void otherMessagesKeepWriteOrder() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ProtocolEncoder(), new RequestBatcher(16, 1000000));
+        channel.write(request(1));
+        ProtocolMessage.Header header = header(2);
+        header.setType(MessageType.RESPONSE);
+        channel.writeAndFlush(new ProtocolMessage<>(header, null));
+        List<ProtocolMessage<?>> frames = decodeAll(channel);
+        assertEquals(2, frames.size());
+        assertEquals(1, frames.get(0).getHeader().getRequestId());
+        assertEquals(2, frames.get(1).getHeader().getRequestId());
+    }
+
+    @Test
+    public void pendingRequestsFailOnClose() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ProtocolEncoder(), new RequestBatcher(16, 1000000));
+        ChannelFuture write = channel.writeAndFlush(request(1));
+        channel.close();
+        assertTrue(write.cause() instanceof ClosedChannelException);
+    }
+
+    private static ProtocolMessage.Header header(long requestId) {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setSerializer(SerializerFactory.getSerializer(SerializerPolicy.KRYO).getId());
+        header.setType(MessageType.REQUEST);
+        header.setRequestId(requestId);
+        return header;
+    }
+
+    private static ProtocolMessage<RpcRequest> request(long requestId) {
+        RpcRequest rpcRequest = new RpcRequest();
+        rpcRequest.setServiceName("CalculatorService");
+        rpcRequest.setMethodName("add");
+        rpcRequest.setParameterTypes(new Class<?>[]{Integer.class, Integer.class});
+        rpcRequest.setArgs(new Object[]{1, 2});
+        return new ProtocolMessage<>(header(requestId), rpcRequest);
+    }
+
+    private static ProtocolMessage<?> decodeOne(EmbeddedChannel channel) {
+        List<ProtocolMessage<?>> frames = decodeAll(channel);
+        assertEquals(1, frames.size());
+        return frames.get(0);
+    }
+
+    private static List<ProtocolMessage<?>> decodeAll(EmbeddedChannel channel) {
+        EmbeddedChannel decoder = new EmbeddedChannel(new ProtocolDecoder());
+        ByteBuf encoded;
+        while ((encoded = channel.readOutbound()) != null) {
+            decoder.writeInbound(encoded);
+        }
+        List<ProtocolMessage<?>> frames = new ArrayList<>();
+        ProtocolMessage<?> frame;
+        while ((frame = decoder.readInbound()) != null) {
+            frames.add(frame);
+        }
+        return frames;
+    }
+}
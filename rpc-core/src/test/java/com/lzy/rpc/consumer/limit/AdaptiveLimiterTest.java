@@ -0,0 +1,148 @@
+package com.lzy.rpc.consumer.limit;
+
+import com.lzy.rpc.config.ClientConfig;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveLimiterTest {
+
+    private static final long NO_LOAD_RTT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void rejectsBeyondTheLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config(3, 100));
+        assertEquals(3, acquire(limiter, 10));
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(3, limiter.getInflight());
+    }
+
+    @Test
+    public void growsWhileResponseTimeStaysLow() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config(10, 100));
+        saturate(limiter, NO_LOAD_RTT);
+        assertTrue(String.valueOf(limiter.getLimit()), limiter.getLimit() > 10);
+    }
+
+    @Test
+    public void shrinksWhenRequestsQueue() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config(10, 100));
+        /* 先以低负载建立无排队的响应时间，再在满负载下观测到10倍的响应时间 */
+        assertTrue(limiter.tryAcquire());
+        limiter.release(NO_LOAD_RTT, false);
+        saturate(limiter, 10 * NO_LOAD_RTT);
+        assertTrue(String.valueOf(limiter.getLimit()), limiter.getLimit() < 10);
+    }
+
+    @Test
+    public void lightLoadDoesNotChangeTheLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config(10, 100));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(i % 2 == 0 ? NO_LOAD_RTT : 100 * NO_LOAD_RTT, false);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void droppedRequestsShrinkDownToOne() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config(3, 100));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(NO_LOAD_RTT, true);
+        }
+        assertEquals(1, limiter.getLimit());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void limitIsCappedByTheMaximum() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config(10, 12));
+        for (int i = 0; i < 5; i++) {
+            saturate(limiter, NO_LOAD_RTT);
+        }
+        assertEquals(12, limiter.getLimit());
+    }
+
+    @Test
+    public void concurrentAcquireNeverExceedsTheLimit() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(config(4, 4));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 20000; i++) {
+                    if (limiter.tryAcquire()) {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        running.decrementAndGet();
+                        limiter.release(NO_LOAD_RTT, false);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(String.valueOf(maxRunning.get()), maxRunning.get() <= 4);
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    public void removeDropsAllServicesOfTheNode() {
+        String address = "127.0.0.1:" + System.nanoTime();
+        AdaptiveLimiter.get("a", address);
+        AdaptiveLimiter.get("b", address);
+        AdaptiveLimiter.get("a", address + "1");
+        AdaptiveLimiter.remove(address);
+        assertFalse(AdaptiveLimiter.limits().containsKey("a@" + address));
+        assertFalse(AdaptiveLimiter.limits().containsKey("b@" + address));
+        assertTrue(AdaptiveLimiter.limits().containsKey("a@" + address + "1"));
+        AdaptiveLimiter.remove(address + "1");
+    }
+
+    /**
+     * 占满当前上限后以相同的响应时间逐个结束
+     */
+    private static void saturate(AdaptiveLimiter limiter, long rtt) {
+        int acquired = acquire(limiter, Integer.MAX_VALUE);
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(rtt, false);
+        }
+    }
+
+    private static int acquire(AdaptiveLimiter limiter, int max) {
+        int acquired = 0;
+        while (acquired < max && limiter.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+
+    private static ClientConfig config(int initial, int max) {
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setAdaptiveLimitInitial(initial);
+        clientConfig.setAdaptiveLimitMax(max);
+        return clientConfig;
+    }
+}
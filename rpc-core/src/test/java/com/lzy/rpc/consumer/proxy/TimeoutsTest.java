@@ -0,0 +1,35 @@
+package com.lzy.rpc.consumer.proxy;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimeoutsTest {
+
+    @Test
+    public void parsesServiceAndMethodEntries() {
+        Map<String, Long> timeouts = Timeouts.parse(" com.lzy.common.UserService = 200, com.lzy.common.UserService.getUser=50,");
+        assertEquals(2, timeouts.size());
+        assertEquals(200L, (long) timeouts.get("com.lzy.common.UserService"));
+        assertEquals(50L, (long) timeouts.get("com.lzy.common.UserService.getUser"));
+        assertTrue(Timeouts.parse("").isEmpty());
+    }
+
+    @Test
+    public void invalidEntriesNameTheKey() {
+        for (String config : new String[]{"com.lzy.common.UserService=2s", "com.lzy.common.UserService=0",
+                "com.lzy.common.UserService", "=200"}) {
+            try {
+                Timeouts.parse("com.lzy.common.OrderService=100," + config);
+                fail(config);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("'" + config + "'"));
+                assertTrue(e.getMessage(), !config.startsWith("com") || e.getMessage().contains("'com.lzy.common.UserService'"));
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.lzy.rpc.consumer.retry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryBudgetTest {
+
+    @Test
+    public void startsWithAFullBucket() {
+        RetryBudget budget = new RetryBudget(0.1, 3);
+        assertEquals(3, drain(budget));
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void requestsEarnRetriesByRatio() {
+        RetryBudget budget = new RetryBudget(0.1, 3);
+        drain(budget);
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void depositsAreCappedByCapacity() {
+        RetryBudget budget = new RetryBudget(0.5, 2);
+        budget.tryWithdraw();
+        for (int i = 0; i < 1000; i++) {
+            budget.deposit();
+        }
+        assertEquals(2, drain(budget));
+    }
+
+    @Test
+    public void concurrentRetriesStayWithinBudget() throws Exception {
+        RetryBudget budget = new RetryBudget(0.2, 10);
+        int threads = 8;
+        int requests = 10000;
+        AtomicInteger retries = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                /* 每个请求都失败并尝试重试，重试数不能超过初始容量加请求数乘以比例 */
+                for (int i = 0; i < requests; i++) {
+                    budget.deposit();
+                    if (budget.tryWithdraw()) {
+                        retries.incrementAndGet();
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        /* 桶满时存入的令牌被丢弃，总放行数在请求数乘以比例与再加上初始容量之间 */
+        int allowed = retries.get() + drain(budget);
+        assertTrue(String.valueOf(allowed), allowed >= threads * requests / 5 && allowed <= 10 + threads * requests / 5);
+    }
+
+    private static int drain(RetryBudget budget) {
+        int count = 0;
+        while (budget.tryWithdraw()) {
+            count++;
+        }
+        return count;
+    }
+}
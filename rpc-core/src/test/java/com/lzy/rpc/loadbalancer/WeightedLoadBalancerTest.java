@@ -0,0 +1,150 @@
+package com.lzy.rpc.loadbalancer;
+
+import com.lzy.rpc.bean.ServiceInfo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WeightedLoadBalancerTest {
+
+    @Test
+    public void smoothRoundRobinInterleavesSelections() {
+        List<ServiceInfo> nodes = nodes(5, 1, 1);
+        LoadBalancer loadBalancer = new SmoothWeightedRoundRobinLoadBalancer();
+        StringBuilder sequence = new StringBuilder();
+        for (int i = 0; i < 14; i++) {
+            sequence.append(name(loadBalancer.select(nodes)));
+        }
+        /* 与nginx平滑加权轮询的结果一致，高权重节点不会连续集中 */
+        assertEquals("aabacaa" + "aabacaa", sequence.toString());
+    }
+
+    @Test
+    public void smoothRoundRobinKeepsExactProportionsUnderConcurrency() throws Exception {
+        List<ServiceInfo> nodes = nodes(5, 2, 1);
+        LoadBalancer loadBalancer = new SmoothWeightedRoundRobinLoadBalancer();
+        int threads = 4;
+        int perThread = 8 * 2500;
+        Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    counts.computeIfAbsent(name(loadBalancer.select(nodes)), key -> new LongAdder()).increment();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        /* 选择序列按原子下标取用，总次数为整轮的倍数时各节点次数严格符合权重 */
+        int rounds = threads * perThread / 8;
+        assertEquals(5L * rounds, counts.get("a").sum());
+        assertEquals(2L * rounds, counts.get("b").sum());
+        assertEquals((long) rounds, counts.get("c").sum());
+    }
+
+    @Test
+    public void aliasTableFollowsWeights() {
+        List<ServiceInfo> nodes = nodes(1, 2, 7);
+        Map<String, Integer> counts = count(new WeightedRandomLoadBalancer(), nodes, 200000);
+        assertEquals(0.1, counts.get("a") / 200000.0, 0.01);
+        assertEquals(0.2, counts.get("b") / 200000.0, 0.01);
+        assertEquals(0.7, counts.get("c") / 200000.0, 0.01);
+    }
+
+    @Test
+    public void tablesAreRebuiltWhenTheListChanges() {
+        for (LoadBalancer loadBalancer : Arrays.asList(new WeightedRandomLoadBalancer(), new SmoothWeightedRoundRobinLoadBalancer())) {
+            count(loadBalancer, nodes(1, 1, 1), 100);
+            List<ServiceInfo> changed = nodes(1, 1);
+            Map<String, Integer> counts = count(loadBalancer, changed, 1000);
+            assertEquals(loadBalancer.getClass().getSimpleName(), new HashMap<>(counts).keySet(),
+                    new java.util.HashSet<>(Arrays.asList("a", "b")));
+        }
+    }
+
+    @Test
+    public void warmingNodeReceivesLessTraffic() {
+        List<ServiceInfo> nodes = nodes(1, 1);
+        nodes.get(1).setRegisterTime(System.currentTimeMillis());
+        nodes.get(1).setWarmup(600000);
+        for (LoadBalancer loadBalancer : Arrays.asList(new WeightedRandomLoadBalancer(), new SmoothWeightedRoundRobinLoadBalancer())) {
+            Map<String, Integer> counts = count(loadBalancer, Collections.unmodifiableList(nodes), 100000);
+            double ratio = counts.getOrDefault("b", 0) / 100000.0;
+            assertTrue(loadBalancer.getClass().getSimpleName() + " " + ratio, ratio > 0 && ratio < 0.1);
+        }
+    }
+
+    @Test
+    public void smoothRoundRobinKeepsItsPositionWhenWeightsDoNotChange() throws Exception {
+        List<ServiceInfo> nodes = nodes(1, 1);
+        /* 预热刚开始时有效权重保持在最小比例，到达刷新时间后权重不变 */
+        nodes.get(1).setRegisterTime(System.currentTimeMillis());
+        nodes.get(1).setWarmup(600000);
+        List<ServiceInfo> warming = Collections.unmodifiableList(nodes);
+        LoadBalancer continuous = new SmoothWeightedRoundRobinLoadBalancer();
+        LoadBalancer refreshed = new SmoothWeightedRoundRobinLoadBalancer();
+        StringBuilder expected = new StringBuilder();
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            expected.append(name(continuous.select(warming)));
+        }
+        for (int i = 0; i < 10; i++) {
+            actual.append(name(refreshed.select(warming)));
+        }
+        Thread.sleep(1100);
+        for (int i = 10; i < 30; i++) {
+            actual.append(name(refreshed.select(warming)));
+        }
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    private static Map<String, Integer> count(LoadBalancer loadBalancer, List<ServiceInfo> nodes, int times) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < times; i++) {
+            counts.merge(name(loadBalancer.select(nodes)), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static String name(ServiceInfo serviceInfo) {
+        return String.valueOf((char) ('a' + serviceInfo.getServicePort() - 8000));
+    }
+
+    /**
+     * 按权重创建节点，节点依次命名为a、b、c……
+     */
+    private static List<ServiceInfo> nodes(int... weights) {
+        List<ServiceInfo> nodes = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            ServiceInfo serviceInfo = new ServiceInfo();
+            serviceInfo.setServiceName("test");
+            serviceInfo.setServiceHost("127.0.0.1");
+            serviceInfo.setServicePort(8000 + i);
+            serviceInfo.setWeight(weights[i]);
+            nodes.add(serviceInfo);
+        }
+        return nodes;
+    }
+}
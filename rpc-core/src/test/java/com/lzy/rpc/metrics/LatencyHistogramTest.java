@@ -0,0 +1,77 @@
+package com.lzy.rpc.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesAreWithinOneSubBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500.5, snapshot.getMean(), 0.001);
+        assertEquals(500, snapshot.getPercentile(50), 500 / 16.0);
+        assertEquals(990, snapshot.getPercentile(99), 990 / 16.0);
+        assertEquals(1000, snapshot.getMax(), 1000 / 16.0);
+    }
+
+    @Test
+    public void minusKeepsOnlyNewSamples() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+        LatencyHistogram.Snapshot interval = histogram.snapshot().minus(first);
+        assertEquals(2, interval.getCount());
+        assertEquals(20, interval.getSum());
+        assertEquals(11, interval.getMax());
+    }
+
+    /**
+     * 按快照之差划分区间时，并发记录的样本不会丢失
+     */
+    @Test
+    public void intervalsAddUpUnderConcurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram.Snapshot last = histogram.snapshot();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> workers = new ArrayList<>();
+        long[] recorded = new long[4];
+        for (int t = 0; t < recorded.length; t++) {
+            int index = t;
+            Thread worker = new Thread(() -> {
+                while (running.get()) {
+                    histogram.record(1000);
+                    recorded[index]++;
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long total = 0;
+        for (int i = 0; i < 200; i++) {
+            LatencyHistogram.Snapshot current = histogram.snapshot();
+            total += current.minus(last).getCount();
+            last = current;
+        }
+        running.set(false);
+        long expected = 0;
+        for (int t = 0; t < recorded.length; t++) {
+            workers.get(t).join();
+            expected += recorded[t];
+        }
+        total += histogram.snapshot().minus(last).getCount();
+        assertEquals(expected, total);
+    }
+}
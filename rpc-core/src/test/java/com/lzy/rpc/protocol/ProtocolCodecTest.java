@@ -0,0 +1,179 @@
+package com.lzy.rpc.protocol;
+
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.compress.Compressor;
+import com.lzy.rpc.compress.CompressorFactory;
+import com.lzy.rpc.compress.CompressorPolicy;
+import com.lzy.rpc.util.Serializer;
+import com.lzy.rpc.util.SerializerFactory;
+import com.lzy.rpc.util.SerializerPolicy;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProtocolCodecTest {
+
+    private static final String[] SERIALIZERS = {
+            SerializerPolicy.JDK, SerializerPolicy.JSON, SerializerPolicy.KRYO, SerializerPolicy.HESSIAN
+    };
+
+    @Test
+    public void requestRoundTripForEverySerializer() {
+        for (String key : SERIALIZERS) {
+            Serializer serializer = SerializerFactory.getSerializer(key);
+            ProtocolMessage<?> decoded = roundTrip(request(serializer, 42L));
+            assertEquals(key, MessageType.REQUEST, decoded.getHeader().getType());
+            assertEquals(key, 42L, decoded.getHeader().getRequestId());
+            assertEquals(key, serializer.getId(), decoded.getHeader().getSerializer());
+            RpcRequest rpcRequest = (RpcRequest) decoded.getBody();
+            assertEquals(key, "CalculatorService", rpcRequest.getServiceName());
+            assertEquals(key, "add", rpcRequest.getMethodName());
+            assertArrayEquals(key, new Class<?>[]{Integer.class, Integer.class}, rpcRequest.getParameterTypes());
+            assertEquals(key, 3, ((Number) rpcRequest.getArgs()[1]).intValue());
+            assertEquals(key, "v", rpcRequest.getMetadata().get("k"));
+        }
+    }
+
+    @Test
+    public void responseRoundTripForEverySerializer() {
+        for (String key : SERIALIZERS) {
+            Serializer serializer = SerializerFactory.getSerializer(key);
+            RpcResponse rpcResponse = new RpcResponse();
+            rpcResponse.setData(5);
+            rpcResponse.setDataType(Integer.class);
+            rpcResponse.setMessage("ok");
+            ProtocolMessage<?> decoded = roundTrip(new ProtocolMessage<>(header(serializer, MessageType.RESPONSE, 7L), rpcResponse));
+            RpcResponse body = (RpcResponse) decoded.getBody();
+            assertEquals(key, MessageStatus.OK, decoded.getHeader().getStatus());
+            assertEquals(key, 5, body.getData());
+            assertEquals(key, "ok", body.getMessage());
+        }
+    }
+
+    @Test
+    public void compressedBodyRoundTripForEveryCompressor() {
+        String[] compressors = {CompressorPolicy.GZIP, CompressorPolicy.LZ4, CompressorPolicy.SNAPPY, CompressorPolicy.ZSTD};
+        Serializer serializer = SerializerFactory.getSerializer(SerializerPolicy.KRYO);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("compressible ");
+        }
+        ProtocolMessage<RpcRequest> message = request(serializer, 9L);
+        message.getBody().setArgs(new Object[]{text.toString()});
+        int plainLength = encode(message).readableBytes();
+        for (String key : compressors) {
+            Compressor compressor = CompressorFactory.getCompressor(key);
+            EmbeddedChannel encoder = new EmbeddedChannel(new ProtocolEncoder(compressor, 1024));
+            encoder.writeOutbound(request(serializer, 9L));
+            encoder.writeOutbound(message);
+            ByteBuf small = encoder.readOutbound();
+            ByteBuf large = encoder.readOutbound();
+            /* 小于阈值的消息体不压缩 */
+            assertEquals(key, CompressorPolicy.NONE_ID, small.getByte(3));
+            assertEquals(key, compressor.getId(), large.getByte(3));
+            assertTrue(key, large.readableBytes() < plainLength);
+            small.release();
+            EmbeddedChannel decoder = new EmbeddedChannel(new ProtocolDecoder());
+            decoder.writeInbound(large);
+            ProtocolMessage<?> decoded = decoder.readInbound();
+            assertEquals(key, text.toString(), ((RpcRequest) decoded.getBody()).getArgs()[0]);
+        }
+    }
+
+    @Test
+    public void emptyBodyDecodesToNull() {
+        Serializer serializer = SerializerFactory.getSerializer(SerializerPolicy.JDK);
+        ProtocolMessage.Header header = header(serializer, MessageType.RESPONSE, 1L);
+        header.setStatus(MessageStatus.OVERLOADED);
+        ProtocolMessage<?> decoded = roundTrip(new ProtocolMessage<>(header, null));
+        assertEquals(MessageStatus.OVERLOADED, decoded.getHeader().getStatus());
+        assertNull(decoded.getBody());
+    }
+
+    @Test
+    public void framesSplitAcrossReadsAreReassembled() {
+        Serializer serializer = SerializerFactory.getSerializer(SerializerPolicy.KRYO);
+        ByteBuf encoded = encode(request(serializer, 1L));
+        encoded.writeBytes(encode(request(serializer, 2L)));
+        EmbeddedChannel decoder = new EmbeddedChannel(new ProtocolDecoder());
+        /* 逐字节写入，两帧之间和帧内部都可能被拆开 */
+        while (encoded.isReadable()) {
+            decoder.writeInbound(encoded.readRetainedSlice(1));
+        }
+        encoded.release();
+        assertEquals(1L, ((ProtocolMessage<?>) decoder.readInbound()).getHeader().getRequestId());
+        assertEquals(2L, ((ProtocolMessage<?>) decoder.readInbound()).getHeader().getRequestId());
+        assertNull(decoder.readInbound());
+    }
+
+    @Test
+    public void illegalMagicIsRejected() {
+        ByteBuf encoded = encode(request(SerializerFactory.getSerializer(SerializerPolicy.JDK), 1L));
+        encoded.setByte(0, 0);
+        EmbeddedChannel decoder = new EmbeddedChannel(new ProtocolDecoder());
+        try {
+            decoder.writeInbound(encoded);
+            fail("frame with illegal magic should be rejected");
+        } catch (DecoderException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void otherProtocolVersionClosesTheConnection() {
+        ByteBuf encoded = encode(request(SerializerFactory.getSerializer(SerializerPolicy.JDK), 1L));
+        encoded.setByte(1, ProtocolConstant.VERSION - 1);
+        EmbeddedChannel decoder = new EmbeddedChannel(new ProtocolDecoder());
+        decoder.writeInbound(encoded);
+        assertNull(decoder.readInbound());
+        assertFalse(decoder.isOpen());
+    }
+
+    private static ProtocolMessage<RpcRequest> request(Serializer serializer, long requestId) {
+        RpcRequest rpcRequest = new RpcRequest();
+        rpcRequest.setServiceName("CalculatorService");
+        rpcRequest.setMethodName("add");
+        rpcRequest.setParameterTypes(new Class<?>[]{Integer.class, Integer.class});
+        rpcRequest.setArgs(new Object[]{2, 3});
+        rpcRequest.setMetadata(Collections.singletonMap("k", "v"));
+        return new ProtocolMessage<>(header(serializer, MessageType.REQUEST, requestId), rpcRequest);
+    }
+
+    static ProtocolMessage.Header header(Serializer serializer, byte type, long requestId) {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setSerializer(serializer.getId());
+        header.setType(type);
+        header.setRequestId(requestId);
+        return header;
+    }
+
+    static ByteBuf encode(ProtocolMessage<?> message) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new ProtocolEncoder());
+        encoder.writeOutbound(message);
+        ByteBuf encoded = Unpooled.buffer();
+        ByteBuf part;
+        while ((part = encoder.readOutbound()) != null) {
+            encoded.writeBytes(part);
+            part.release();
+        }
+        return encoded;
+    }
+
+    static ProtocolMessage<?> roundTrip(ProtocolMessage<?> message) {
+        EmbeddedChannel decoder = new EmbeddedChannel(new ProtocolDecoder());
+        decoder.writeInbound(encode(message));
+        return decoder.readInbound();
+    }
+}
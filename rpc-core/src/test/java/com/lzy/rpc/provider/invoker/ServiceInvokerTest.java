@@ -0,0 +1,73 @@
+package com.lzy.rpc.provider.invoker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ServiceInvokerTest {
+
+    @Test
+    public void interfaceInheritedFromSuperclassIsExposed() throws Throwable {
+        ServiceInvoker serviceInvoker = new ServiceInvoker(GreetingService.class, new SubclassGreetingService());
+        MethodInvoker invoker = serviceInvoker.getInvoker("greet", new Class<?>[]{String.class});
+        assertNotNull(invoker);
+        assertEquals("hello rpc", invoker.invoke(new Object[]{"rpc"}));
+    }
+
+    @Test
+    public void superInterfaceMethodsAreExposed() throws Throwable {
+        ServiceInvoker serviceInvoker = new ServiceInvoker(GreetingService.class, new SubclassGreetingService());
+        MethodInvoker invoker = serviceInvoker.getInvoker("ping", null);
+        assertNotNull(invoker);
+        assertEquals("pong", invoker.invoke(null));
+    }
+
+    @Test
+    public void otherInterfacesAreNotExposed() throws Exception {
+        ServiceInvoker serviceInvoker = new ServiceInvoker(GreetingService.class, new SubclassGreetingService());
+        assertNull(serviceInvoker.getInvoker("shutdown", new Class<?>[0]));
+        assertNull(serviceInvoker.getInvoker("toString", new Class<?>[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void serviceMustImplementTheInterface() throws Exception {
+        new ServiceInvoker(Runnable.class, new SubclassGreetingService());
+    }
+
+    public interface Pingable {
+
+        String ping();
+    }
+
+    public interface GreetingService extends Pingable {
+
+        String greet(String name);
+    }
+
+    public interface Admin {
+
+        void shutdown();
+    }
+
+    public static class BaseGreetingService implements GreetingService {
+
+        @Override
+        public String greet(String name) {
+            return "hello " + name;
+        }
+
+        @Override
+        public String ping() {
+            return "pong";
+        }
+    }
+
+    public static class SubclassGreetingService extends BaseGreetingService implements Admin {
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.lzy.rpc.provider.registry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class OfflineListenersTest {
+
+    @Test
+    public void failingListenerDoesNotStopTheOthers() {
+        List<String> released = new ArrayList<>();
+        Registry.addOfflineListener(address -> {
+            throw new IllegalStateException("boom");
+        });
+        Registry.addOfflineListener(released::add);
+        Registry.fireOffline("127.0.0.1:9001");
+        assertEquals(1, released.size());
+        assertEquals("127.0.0.1:9001", released.get(0));
+    }
+}
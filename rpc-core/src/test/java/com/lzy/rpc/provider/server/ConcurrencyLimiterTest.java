@@ -0,0 +1,121 @@
+package com.lzy.rpc.provider.server;
+
+import com.lzy.rpc.config.ServerConfig;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void globalLimitRejectsUntilReleased() {
+        ConcurrencyLimiter limiter = limiter(2, null);
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b"));
+        assertFalse(limiter.tryAcquire("a"));
+        limiter.release("b");
+        assertTrue(limiter.tryAcquire("a"));
+    }
+
+    @Test
+    public void serviceLimitDoesNotConsumeGlobalPermits() {
+        ConcurrencyLimiter limiter = limiter(3, "slow=1,");
+        assertTrue(limiter.tryAcquire("slow"));
+        assertFalse(limiter.tryAcquire("slow"));
+        assertFalse(limiter.tryAcquire("slow"));
+        /* 被服务上限拒绝的请求归还全局许可 */
+        assertTrue(limiter.tryAcquire("fast"));
+        assertTrue(limiter.tryAcquire("fast"));
+        assertFalse(limiter.tryAcquire("fast"));
+        limiter.release("slow");
+        assertTrue(limiter.tryAcquire("slow"));
+    }
+
+    @Test
+    public void invalidLimitsAreRejectedAtConstruction() {
+        for (String config : new String[]{"slow=x", "slow=0", "slow", "=5"}) {
+            try {
+                limiter(0, "fast=2," + config);
+                fail(config);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("'" + config + "'"));
+            }
+        }
+        try {
+            limiter(-1, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("maxConcurrency"));
+        }
+    }
+
+    @Test
+    public void unlimitedByDefault() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ServerConfig());
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(limiter.tryAcquire(i % 2 == 0 ? null : "a"));
+        }
+    }
+
+    @Test
+    public void concurrentAcquireNeverExceedsLimit() throws Exception {
+        ConcurrencyLimiter limiter = limiter(8, "a=3");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger runningA = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger maxRunningA = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            String serviceName = t % 2 == 0 ? "a" : "b";
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 20000; i++) {
+                    if (!limiter.tryAcquire(serviceName)) {
+                        continue;
+                    }
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    if ("a".equals(serviceName)) {
+                        maxRunningA.accumulateAndGet(runningA.incrementAndGet(), Math::max);
+                        runningA.decrementAndGet();
+                    }
+                    running.decrementAndGet();
+                    limiter.release(serviceName);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(String.valueOf(maxRunning.get()), maxRunning.get() <= 8);
+        assertTrue(String.valueOf(maxRunningA.get()), maxRunningA.get() <= 3);
+        /* 全部释放后许可完整归还 */
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("a"));
+        }
+        assertFalse(limiter.tryAcquire("a"));
+        assertEquals(0, running.get());
+    }
+
+    private static ConcurrencyLimiter limiter(int maxConcurrency, String serviceConcurrency) {
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setMaxConcurrency(maxConcurrency);
+        serverConfig.setServiceConcurrency(serviceConcurrency);
+        return new ConcurrencyLimiter(serverConfig);
+    }
+}
@@ -0,0 +1,261 @@
+package com.lzy.rpc.provider.server;
+
+import com.lzy.rpc.RpcApplication;
+import com.lzy.rpc.bean.RpcRequest;
+import com.lzy.rpc.bean.RpcResponse;
+import com.lzy.rpc.config.ServerConfig;
+import com.lzy.rpc.context.RpcContext;
+import com.lzy.rpc.metrics.MethodMetrics;
+import com.lzy.rpc.metrics.MetricsRegistry;
+import com.lzy.rpc.protocol.MessageType;
+import com.lzy.rpc.protocol.ProtocolDecoder;
+import com.lzy.rpc.protocol.ProtocolEncoder;
+import com.lzy.rpc.protocol.ProtocolMessage;
+import com.lzy.rpc.provider.registry.LocalRegistry;
+import com.lzy.rpc.util.SerializerFactory;
+import com.lzy.rpc.util.SerializerPolicy;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NettyServerHandlerTest {
+
+    private static final String SERVICE = "PointService";
+
+    @BeforeClass
+    public static void register() {
+        LocalRegistry.register(SERVICE, PointService.class, new PointServiceImpl());
+    }
+
+    @Test
+    public void asyncResultKeepsItsTypeThroughJson() {
+        RpcResponse rpcResponse = call("asyncPoint");
+        assertNull(rpcResponse.getException());
+        assertEquals(Point.class, rpcResponse.getDataType());
+        assertTrue(rpcResponse.getData() instanceof Point);
+        assertEquals(3, ((Point) rpcResponse.getData()).getX());
+    }
+
+    @Test
+    public void syncResultKeepsItsTypeThroughJson() {
+        RpcResponse rpcResponse = call("point");
+        assertTrue(rpcResponse.getData() instanceof Point);
+        assertEquals(3, ((Point) rpcResponse.getData()).getX());
+    }
+
+    @Test
+    public void unknownServiceIsRejectedWithoutCreatingState() {
+        RpcResponse rpcResponse = call("no-such-service", "point");
+        assertEquals("service not found: no-such-service", rpcResponse.getMessage());
+        assertFalse(MetricsRegistry.SERVER.getAll().containsKey("no-such-service"));
+    }
+
+    @Test
+    public void unknownMethodIsRejectedWithoutCreatingState() {
+        RpcResponse rpcResponse = call(SERVICE, "noSuchMethod");
+        assertEquals(SERVICE + ".noSuchMethod", rpcResponse.getMessage());
+        Map<String, MethodMetrics> methods = MetricsRegistry.SERVER.getAll().get(SERVICE);
+        assertTrue(methods == null || !methods.containsKey("noSuchMethod"));
+    }
+
+    @Test
+    public void batchRequestIsAnsweredWithBatchResponseInOrder() {
+        EmbeddedChannel server = new EmbeddedChannel(new ProtocolEncoder(),
+                new NettyServerHandler(new ConcurrencyLimiter(new ServerConfig()), 0));
+        ProtocolMessage.Header header = header(10L);
+        header.setType(MessageType.BATCH_REQUEST);
+        List<ProtocolMessage<?>> requests = Arrays.asList(
+                new ProtocolMessage<>(header(11L), request(SERVICE, "point", 1)),
+                new ProtocolMessage<>(header(12L), request(SERVICE, "asyncPoint", 2)));
+        server.writeInbound(new ProtocolMessage<>(header, requests));
+        EmbeddedChannel client = new EmbeddedChannel(new ProtocolDecoder());
+        client.writeInbound((ByteBuf) server.readOutbound());
+        ProtocolMessage<?> batch = client.readInbound();
+        assertEquals(MessageType.BATCH_RESPONSE, batch.getHeader().getType());
+        List<ProtocolMessage<?>> responses = ProtocolMessage.messagesOf(batch);
+        assertEquals(2, responses.size());
+        assertEquals(11L, responses.get(0).getHeader().getRequestId());
+        assertEquals(12L, responses.get(1).getHeader().getRequestId());
+        assertEquals(2, ((Point) ((RpcResponse) responses.get(1).getBody()).getData()).getX());
+    }
+
+    /**
+     * 异步方法在其他线程上完成，IO线程暂停读取与业务线程恢复读取交错进行，连接不能停止读取
+     */
+    @Test
+    public void autoReadRecoversWhenRequestsFinishConcurrently() throws Exception {
+        int requests = 20000;
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        AtomicReference<Channel> accepted = new AtomicReference<>();
+        CountDownLatch responses = new CountDownLatch(requests);
+        try {
+            LocalAddress address = new LocalAddress("autoRead-" + System.nanoTime());
+            new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            accepted.set(ch);
+                            ch.pipeline().addLast(new NettyServerHandler(new ConcurrencyLimiter(new ServerConfig()), 2));
+                        }
+                    }).bind(address).sync();
+            Channel client = new Bootstrap().group(group).channel(LocalChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            responses.countDown();
+                        }
+                    }).connect(address).sync().channel();
+            /* 逐个发送，使服务端反复暂停和恢复读取 */
+            for (int i = 0; i < requests; i++) {
+                client.writeAndFlush(new ProtocolMessage<>(header(i), request(SERVICE, "laterPoint", i)));
+            }
+            assertTrue("responses left: " + responses.getCount(), responses.await(30, TimeUnit.SECONDS));
+            Channel server = accepted.get();
+            assertTrue(server.eventLoop().submit(() -> server.config().isAutoRead()).get());
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    /**
+     * 在业务线程池排队期间超过截止时间的请求没有执行，计为拒绝而不是失败
+     */
+    @Test
+    public void requestExpiredInQueueIsCountedAsRejected() {
+        MethodMetrics metrics = MetricsRegistry.SERVER.get(SERVICE, "point");
+        long errors = metrics.getErrors();
+        long rejected = metrics.getRejected();
+        long deadline = System.currentTimeMillis() + 50;
+        RpcApplication.dispatcher = (rpcRequest, task) -> {
+            while (System.currentTimeMillis() <= deadline) {
+                Thread.yield();
+            }
+            task.run();
+        };
+        try {
+            EmbeddedChannel server = new EmbeddedChannel(new ProtocolEncoder(),
+                    new NettyServerHandler(new ConcurrencyLimiter(new ServerConfig()), 0));
+            RpcRequest rpcRequest = request(SERVICE, "point", 1);
+            RpcContext.setDeadline(rpcRequest, deadline);
+            server.writeInbound(new ProtocolMessage<>(header(1L), rpcRequest));
+            EmbeddedChannel client = new EmbeddedChannel(new ProtocolDecoder());
+            client.writeInbound((ByteBuf) server.readOutbound());
+            ProtocolMessage<?> response = client.readInbound();
+            assertEquals("deadline exceeded, request dropped", ((RpcResponse) response.getBody()).getMessage());
+        } finally {
+            RpcApplication.dispatcher = null;
+        }
+        assertEquals(errors, metrics.getErrors());
+        assertEquals(rejected + 1, metrics.getRejected());
+        assertEquals(0, metrics.getInflight());
+    }
+
+    private static RpcResponse call(String methodName) {
+        return call(SERVICE, methodName);
+    }
+
+    /**
+     * 以JSON序列化器发出请求，响应经编码、解码后返回
+     */
+    private static RpcResponse call(String serviceName, String methodName) {
+        EmbeddedChannel server = new EmbeddedChannel(new ProtocolEncoder(),
+                new NettyServerHandler(new ConcurrencyLimiter(new ServerConfig()), 0));
+        ProtocolMessage.Header header = header(1L);
+        RpcRequest rpcRequest = request(serviceName, methodName, 3);
+        server.writeInbound(new ProtocolMessage<>(header, rpcRequest));
+        ByteBuf encoded = server.readOutbound();
+        EmbeddedChannel client = new EmbeddedChannel(new ProtocolDecoder());
+        client.writeInbound(encoded);
+        ProtocolMessage<?> response = client.readInbound();
+        return (RpcResponse) response.getBody();
+    }
+
+    private static ProtocolMessage.Header header(long requestId) {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setSerializer(SerializerFactory.getSerializer(SerializerPolicy.JSON).getId());
+        header.setType(MessageType.REQUEST);
+        header.setRequestId(requestId);
+        return header;
+    }
+
+    private static RpcRequest request(String serviceName, String methodName, int x) {
+        RpcRequest rpcRequest = new RpcRequest();
+        rpcRequest.setServiceName(serviceName);
+        rpcRequest.setMethodName(methodName);
+        rpcRequest.setParameterTypes(new Class<?>[]{int.class});
+        rpcRequest.setArgs(new Object[]{x});
+        return rpcRequest;
+    }
+
+    public interface PointService {
+
+        Point point(int x);
+
+        CompletableFuture<Point> asyncPoint(int x);
+
+        CompletableFuture<Point> laterPoint(int x);
+    }
+
+    public static class PointServiceImpl implements PointService {
+
+        @Override
+        public Point point(int x) {
+            return new Point(x);
+        }
+
+        @Override
+        public CompletableFuture<Point> asyncPoint(int x) {
+            return CompletableFuture.completedFuture(new Point(x));
+        }
+
+        @Override
+        public CompletableFuture<Point> laterPoint(int x) {
+            return CompletableFuture.supplyAsync(() -> new Point(x));
+        }
+    }
+
+    public static class Point {
+
+        private int x;
+
+        public Point() {
+        }
+
+        public Point(int x) {
+            this.x = x;
+        }
+
+        public int getX() {
+            return this.x;
+        }
+
+        public void setX(int x) {
+            this.x = x;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.lzy.rpc.trace;
+
+import com.lzy.rpc.bean.RpcResponse;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CallTraceTest {
+
+    @Test
+    public void serverTimingIsReported() {
+        RpcResponse rpcResponse = new RpcResponse();
+        CallTrace.setServerTiming(rpcResponse, 3000, 5000, 7000);
+        rpcResponse.getMetadata().put(CallTrace.RESPONSE_DECODE, "2");
+        String phases = end(rpcResponse);
+        assertTrue(phases, phases.contains(" server.decode=3us server.queue=5us server.invoke=7us"));
+        assertTrue(phases, phases.contains(" deserialize=2us"));
+    }
+
+    @Test
+    public void unparseableTimingEntriesAreSkipped() {
+        RpcResponse rpcResponse = new RpcResponse();
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(CallTrace.TIMING, "decode=3,queue=abc,=4,invoke,invoke=7");
+        metadata.put(CallTrace.RESPONSE_DECODE, "x");
+        rpcResponse.setMetadata(metadata);
+        String phases = end(rpcResponse);
+        assertTrue(phases, phases.contains(" server.decode=3us server.invoke=7us total="));
+        assertFalse(phases, phases.contains("queue"));
+        assertFalse(phases, phases.contains("deserialize"));
+    }
+
+    private static String end(RpcResponse rpcResponse) {
+        CallTrace trace = new CallTrace();
+        trace.attempt("127.0.0.1:8080").end(rpcResponse, null);
+        return trace.phases();
+    }
+}
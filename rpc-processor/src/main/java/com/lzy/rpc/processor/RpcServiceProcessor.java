@@ -0,0 +1,232 @@
+package com.lzy.rpc.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 编译时生成服务索引，记录所有标注了@RpcService的类及其暴露的服务接口，
+ * 服务端启动时读取索引注册服务，避免扫描整个类路径
+ * 索引格式与SPI配置文件相同，每行为 实现类=服务接口，均为可用Class.forName加载的二进制名称
+ * 同时在编译期检查服务类能否被实例化以及服务接口是否明确，把原本启动时才暴露的问题提前
+ */
+@SupportedAnnotationTypes(RpcServiceProcessor.ANNOTATION)
+public class RpcServiceProcessor extends AbstractProcessor {
+
+    /**
+     * 处理器不依赖rpc-core，按名称识别注解
+     */
+    static final String ANNOTATION = "com.lzy.rpc.anno.RpcService";
+
+    /**
+     * 索引文件路径，与rpc-core中读取索引的路径一致
+     */
+    static final String INDEX = "META-INF/rpc/services.index";
+
+    /**
+     * 索引内容，结构为：实现类:服务接口，按类名排序使生成的文件稳定
+     */
+    private final Map<String, String> services = new TreeMap<>();
+
+    /**
+     * 是否已合并上次编译生成的索引
+     */
+    private boolean merged = false;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!this.merged) {
+            this.mergeExisting();
+            this.merged = true;
+        }
+        TypeElement annotation = this.processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                this.collect((TypeElement) element, annotation);
+            }
+        }
+        if (roundEnv.processingOver()) {
+            this.write();
+        }
+        return false;
+    }
+
+    /**
+     * 检查服务类并记录其服务接口
+     */
+    private void collect(TypeElement type, TypeElement annotation) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            this.error(type, "@RpcService只能标注在非抽象类上");
+            return;
+        }
+        if (!type.getModifiers().contains(Modifier.PUBLIC)
+                || (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))) {
+            this.error(type, "@RpcService标注的类必须是public的顶层类或静态内部类");
+            return;
+        }
+        if (!this.hasPublicNoArgConstructor(type)) {
+            this.error(type, "@RpcService标注的类必须有public无参构造方法");
+            return;
+        }
+        TypeElement serviceInterface = this.serviceInterface(type, annotation);
+        if (serviceInterface == null) {
+            return;
+        }
+        this.services.put(this.binaryName(type), this.binaryName(serviceInterface));
+    }
+
+    /**
+     * 确定服务接口，优先使用注解指定的接口，否则使用直接实现的唯一接口
+     *
+     * @return 无法确定时报告错误并返回null
+     */
+    private TypeElement serviceInterface(TypeElement type, TypeElement annotation) {
+        TypeMirror explicit = this.explicitInterface(type, annotation);
+        if (explicit != null && explicit.getKind() == TypeKind.DECLARED) {
+            TypeElement serviceInterface = (TypeElement) ((DeclaredType) explicit).asElement();
+            if (serviceInterface.getKind() != ElementKind.INTERFACE) {
+                this.error(type, "interfaceClass必须是接口: " + serviceInterface.getQualifiedName());
+                return null;
+            }
+            if (!this.processingEnv.getTypeUtils().isAssignable(this.erasure(type.asType()), this.erasure(explicit))) {
+                this.error(type, "没有实现interfaceClass指定的接口: " + serviceInterface.getQualifiedName());
+                return null;
+            }
+            return serviceInterface;
+        }
+        List<? extends TypeMirror> interfaces = type.getInterfaces();
+        if (interfaces.size() != 1) {
+            this.error(type, interfaces.isEmpty()
+                    ? "@RpcService标注的类没有实现任何接口"
+                    : "@RpcService标注的类实现了多个接口，需要用interfaceClass指定暴露的服务接口");
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) interfaces.get(0)).asElement();
+    }
+
+    /**
+     * 读取注解的interfaceClass属性，未指定（默认值void.class）时返回null
+     */
+    private TypeMirror explicitInterface(TypeElement type, TypeElement annotation) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().asElement().equals(annotation)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("interfaceClass")) {
+                    Object value = entry.getValue().getValue();
+                    if (value instanceof TypeMirror && ((TypeMirror) value).getKind() != TypeKind.VOID) {
+                        return (TypeMirror) value;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasPublicNoArgConstructor(TypeElement type) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 合并上次编译生成的索引，增量编译只处理发生变化的类，未重新编译的服务类需要保留
+     * 已删除或不再标注注解的类在此剔除
+     */
+    private void mergeExisting() {
+        FileObject existing;
+        try {
+            existing = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+        } catch (IOException | IllegalArgumentException e) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] strArray = line.trim().split("=");
+                if (line.startsWith("#") || strArray.length != 2) {
+                    continue;
+                }
+                TypeElement type = this.processingEnv.getElementUtils().getTypeElement(strArray[0].replace('$', '.'));
+                if (type != null && this.isAnnotated(type)) {
+                    this.services.put(strArray[0], strArray[1]);
+                }
+            }
+        } catch (IOException e) {
+            /* 首次编译时索引不存在 */
+        }
+    }
+
+    private boolean isAnnotated(TypeElement type) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(ANNOTATION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write() {
+        if (this.services.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject index = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("#由RpcServiceProcessor生成，格式为 实现类=服务接口\n");
+                for (Map.Entry<String, String> entry : this.services.entrySet()) {
+                    writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "无法生成服务索引" + INDEX + ": " + e);
+        }
+    }
+
+    private TypeMirror erasure(TypeMirror type) {
+        return this.processingEnv.getTypeUtils().erasure(type);
+    }
+
+    private String binaryName(TypeElement type) {
+        return this.processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
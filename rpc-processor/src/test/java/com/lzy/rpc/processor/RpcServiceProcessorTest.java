@@ -0,0 +1,170 @@
+package com.lzy.rpc.processor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RpcServiceProcessorTest {
+
+    private static final String ANNOTATION = "package com.lzy.rpc.anno;\n"
+            + "import java.lang.annotation.*;\n"
+            + "@Target(ElementType.TYPE) @Retention(RetentionPolicy.RUNTIME)\n"
+            + "public @interface RpcService { Class<?> interfaceClass() default void.class; }";
+
+    private static final String API = "package demo; public interface Api { int call(); }";
+
+    private static final String OTHER = "package demo; public interface Other { }";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File output;
+
+    @Before
+    public void setUp() throws IOException {
+        this.output = this.folder.newFolder("classes");
+    }
+
+    @Test
+    public void indexesServicesWithBinaryNames() throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = this.compile(
+                "com.lzy.rpc.anno.RpcService", ANNOTATION, "demo.Api", API, "demo.Other", OTHER,
+                "demo.ApiImpl", "package demo; @com.lzy.rpc.anno.RpcService public class ApiImpl implements Api { public int call() { return 1; } }",
+                "demo.Outer", "package demo; public class Outer {"
+                        + " @com.lzy.rpc.anno.RpcService(interfaceClass = Api.class)"
+                        + " public static class Inner implements Api, Other { public int call() { return 2; } } }");
+        assertEquals(Collections.emptyList(), errors(diagnostics));
+        assertEquals(Arrays.asList("demo.ApiImpl=demo.Api", "demo.Outer$Inner=demo.Api"), this.index());
+    }
+
+    @Test
+    public void reportsInvalidServiceClasses() {
+        DiagnosticCollector<JavaFileObject> diagnostics = this.compile(
+                "com.lzy.rpc.anno.RpcService", ANNOTATION, "demo.Api", API, "demo.Other", OTHER,
+                "demo.Abstract", "package demo; @com.lzy.rpc.anno.RpcService public abstract class Abstract implements Api { }",
+                "demo.NoDefault", "package demo; @com.lzy.rpc.anno.RpcService public class NoDefault implements Api {"
+                        + " public NoDefault(int x) { } public int call() { return 0; } }",
+                "demo.Hidden", "package demo; @com.lzy.rpc.anno.RpcService class Hidden implements Api { public int call() { return 0; } }",
+                "demo.NoInterface", "package demo; @com.lzy.rpc.anno.RpcService public class NoInterface { }",
+                "demo.Ambiguous", "package demo; @com.lzy.rpc.anno.RpcService public class Ambiguous implements Api, Other {"
+                        + " public int call() { return 0; } }",
+                "demo.WrongInterface", "package demo; @com.lzy.rpc.anno.RpcService(interfaceClass = Other.class)"
+                        + " public class WrongInterface implements Api { public int call() { return 0; } }");
+        List<String> errors = errors(diagnostics);
+        assertEquals(errors.toString(), 6, errors.size());
+        assertTrue(errors.contains("Abstract: @RpcService只能标注在非抽象类上"));
+        assertTrue(errors.contains("NoDefault: @RpcService标注的类必须有public无参构造方法"));
+        assertTrue(errors.contains("Hidden: @RpcService标注的类必须是public的顶层类或静态内部类"));
+        assertTrue(errors.contains("NoInterface: @RpcService标注的类没有实现任何接口"));
+        assertTrue(errors.contains("Ambiguous: @RpcService标注的类实现了多个接口，需要用interfaceClass指定暴露的服务接口"));
+        assertTrue(errors.contains("WrongInterface: 没有实现interfaceClass指定的接口: demo.Other"));
+    }
+
+    /**
+     * 增量编译只处理变化的类，上次编译的索引中仍然标注注解的类保留，不再标注的类剔除
+     */
+    @Test
+    public void mergesTheIndexOfThePreviousCompilation() throws IOException {
+        DiagnosticCollector<JavaFileObject> first = this.compile(
+                "com.lzy.rpc.anno.RpcService", ANNOTATION, "demo.Api", API,
+                "demo.Kept", "package demo; @com.lzy.rpc.anno.RpcService public class Kept implements Api { public int call() { return 1; } }",
+                "demo.Dropped", "package demo; @com.lzy.rpc.anno.RpcService public class Dropped implements Api { public int call() { return 2; } }");
+        assertEquals(Collections.emptyList(), errors(first));
+        assertEquals(Arrays.asList("demo.Dropped=demo.Api", "demo.Kept=demo.Api"), this.index());
+
+        DiagnosticCollector<JavaFileObject> second = this.compile(
+                "demo.Dropped", "package demo; public class Dropped implements Api { public int call() { return 2; } }",
+                "demo.Added", "package demo; @com.lzy.rpc.anno.RpcService public class Added implements Api { public int call() { return 3; } }");
+        assertEquals(Collections.emptyList(), errors(second));
+        assertEquals(Arrays.asList("demo.Added=demo.Api", "demo.Kept=demo.Api"), this.index());
+    }
+
+    @Test
+    public void writesNoIndexWithoutServices() {
+        DiagnosticCollector<JavaFileObject> diagnostics = this.compile("com.lzy.rpc.anno.RpcService", ANNOTATION, "demo.Api", API);
+        assertEquals(Collections.emptyList(), errors(diagnostics));
+        assertFalse(new File(this.output, RpcServiceProcessor.INDEX).exists());
+    }
+
+    /**
+     * 编译源码，输出目录同时作为类路径，模拟增量编译
+     *
+     * @param sources 依次为类名和源码
+     */
+    private DiagnosticCollector<JavaFileObject> compile(String... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("tests must run on a JDK", compiler);
+        List<JavaFileObject> units = new ArrayList<>();
+        for (int i = 0; i < sources.length; i += 2) {
+            units.add(new Source(sources[i], sources[i + 1]));
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-d", this.output.getPath(), "-classpath", this.output.getPath());
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, units);
+        task.setProcessors(Collections.singletonList(new RpcServiceProcessor()));
+        task.call();
+        return diagnostics;
+    }
+
+    private List<String> index() throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(new File(this.output, RpcServiceProcessor.INDEX).toPath(), StandardCharsets.UTF_8)) {
+            if (!line.startsWith("#")) {
+                entries.add(line);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 错误信息，格式为 简单类名: 信息
+     */
+    private static List<String> errors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                String source = diagnostic.getSource() == null ? "" : diagnostic.getSource().getName();
+                String name = source.substring(source.lastIndexOf('/') + 1).replace(".java", "");
+                errors.add(name + ": " + diagnostic.getMessage(null));
+            }
+        }
+        return errors;
+    }
+
+    private static class Source extends SimpleJavaFileObject {
+
+        private final String code;
+
+        private Source(String className, String code) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return this.code;
+        }
+    }
+}